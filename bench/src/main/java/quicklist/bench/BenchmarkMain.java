@@ -0,0 +1,36 @@
+/**
+ * Runs the benchmarks with the GC profiler, so every result comes with its
+ * allocation rate. Takes the usual JMH command line options, for example
+ *
+ *   java -jar target/benchmarks.jar Positional -p size=1000000 -p impl=QuickLinkedList:1000
+ *
+ * @author Kefei D. Zhou
+ */
+
+package quicklist.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+        if (options.shouldList()) {
+            new Runner(options).list();
+            return;
+        }
+        new Runner(new OptionsBuilder()
+                .parent(options)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+//End
+}
@@ -0,0 +1,87 @@
+/**
+ * Bulk operations of the List implementations: addAll at the end and in the
+ * middle, and subList views that are iterated or cleared, at positions
+ * following the access patterns. QuickLinkedList is run once per fragment
+ * size, named as QuickLinkedList:fragment.
+ *
+ * @author Kefei D. Zhou
+ */
+
+package quicklist.bench;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkBenchmark {
+
+    // elements added or removed by one call
+    private static final int BLOCK = 1000;
+
+    @Param({"ArrayList", "LinkedList", "QuickLinkedList:100", "QuickLinkedList:1000", "QuickLinkedList:10000"})
+    public String impl;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"sequential", "random", "head", "tail"})
+    public String pattern;
+
+    private List<Integer> list;
+    private List<Integer> block;
+    private int[] indices;
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = Lists.filled(impl, size);
+        block = new ArrayList<Integer>(BLOCK);
+        for (int i = 0; i < BLOCK; i++)
+            block.add(-i);
+        indices = Lists.indices(pattern, size - BLOCK);
+    }
+
+
+    private int nextIndex() {
+        int i = indices[next];
+        next = (next + 1) & (Lists.OPS - 1);
+        return i;
+    }
+
+
+    // build a list of size elements from scratch
+    @Benchmark
+    public List<Integer> addAll() {
+        List<Integer> copy = (List<Integer>)Lists.create(impl);
+        copy.addAll(list);
+        return copy;
+    }
+
+
+    // the size stays the same from one call to the next
+    @Benchmark
+    public int addAllRemoveRange() {
+        int i = nextIndex();
+        list.addAll(i, block);
+        list.subList(i, i + BLOCK).clear();
+        return list.size();
+    }
+
+
+    @Benchmark
+    public void subListIterate(Blackhole bh) {
+        int i = nextIndex();
+        for (Integer e : list.subList(i, i + BLOCK))
+            bh.consume(e);
+    }
+
+//End
+}
@@ -0,0 +1,67 @@
+/**
+ * Whole-collection operations that ArrayDeque supports as well as the
+ * lists: iteration, and serialization to bytes and back. QuickLinkedList
+ * is run once per fragment size, named as QuickLinkedList:fragment.
+ *
+ * @author Kefei D. Zhou
+ */
+
+package quicklist.bench;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollectionBenchmark {
+
+    @Param({"ArrayList", "LinkedList", "ArrayDeque", "QuickLinkedList:100", "QuickLinkedList:1000", "QuickLinkedList:10000"})
+    public String impl;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private Collection<Integer> collection;
+    private byte[] serialized;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        collection = Lists.create(impl);
+        for (int i = 0; i < size; i++)
+            collection.add(i);
+        serialized = serialize();
+    }
+
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Integer e : collection)
+            bh.consume(e);
+    }
+
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(collection);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+    }
+
+//End
+}
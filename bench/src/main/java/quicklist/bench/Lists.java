@@ -0,0 +1,128 @@
+/**
+ * Lists creates the collections compared by the benchmarks, and the index
+ * sequences of the access patterns.
+ *
+ * JMH does not allow benchmarks in the default package, and a named package
+ * cannot refer to classes in the default package, so QuickLinkedList is
+ * reached through reflection. Only construction and optimize go through it;
+ * the timed operations are plain List calls.
+ *
+ * @author Kefei D. Zhou
+ */
+
+package quicklist.bench;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.*;
+
+final class Lists {
+
+    // number of precomputed indices an access pattern cycles through
+    static final int OPS = 1 << 12;
+
+    private static final Constructor<?> QUICK;
+    private static final Method OPTIMIZE;
+
+    static {
+        try {
+            Class<?> c = Class.forName("QuickLinkedList");
+            QUICK = c.getConstructor(int.class);
+            OPTIMIZE = c.getMethod("optimize", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+
+    private Lists() {
+    }
+
+
+    /**
+     * Create an empty collection: ArrayList, LinkedList, ArrayDeque or
+     * QuickLinkedList:fragment, a QuickLinkedList with the given fragment
+     * size. The fragment is part of the implementation name so that only
+     * QuickLinkedList is run once per fragment size.
+     */
+    static Collection<Integer> create(String impl) {
+        int fragment = 1000;
+        int colon = impl.indexOf(':');
+        if (colon >= 0) {
+            fragment = Integer.parseInt(impl.substring(colon + 1));
+            impl = impl.substring(0, colon);
+        }
+        switch (impl) {
+        case "ArrayList":
+            return new ArrayList<Integer>();
+        case "LinkedList":
+            return new LinkedList<Integer>();
+        case "ArrayDeque":
+            return new ArrayDeque<Integer>();
+        case "QuickLinkedList":
+            try {
+                // a QuickLinkedList holds any element type, Integer included
+                @SuppressWarnings("unchecked")
+                Collection<Integer> list = (Collection<Integer>)QUICK.newInstance(fragment);
+                return list;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        default:
+            throw new IllegalArgumentException(impl);
+        }
+    }
+
+
+    /**
+     * Create a list holding 0 to size - 1. ArrayDeque is not a List.
+     */
+    static List<Integer> filled(String impl, int size) {
+        List<Integer> list = (List<Integer>)create(impl);
+        for (int i = 0; i < size; i++)
+            list.add(i);
+        return list;
+    }
+
+
+    static void optimize(List<Integer> list, int fragment) {
+        try {
+            OPTIMIZE.invoke(list, fragment);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Return OPS indices in [0, bound) following the access pattern:
+     * sequential, random, head (biased toward index 0) or tail (biased
+     * toward the end). The same seed gives every list the same sequence.
+     */
+    static int[] indices(String pattern, int bound) {
+        Random random = new Random(42);
+        int[] indices = new int[OPS];
+        for (int i = 0; i < OPS; i++) {
+            double u = random.nextDouble();
+            switch (pattern) {
+            case "sequential":
+                indices[i] = i % bound;
+                break;
+            case "random":
+                indices[i] = (int)(u * bound);
+                break;
+            case "head":
+                indices[i] = (int)(u * u * u * bound);
+                break;
+            case "tail":
+                indices[i] = bound - 1 - (int)(u * u * u * bound);
+                break;
+            default:
+                throw new IllegalArgumentException(pattern);
+            }
+        }
+        return indices;
+    }
+
+//End
+}
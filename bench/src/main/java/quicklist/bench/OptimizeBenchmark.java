@@ -0,0 +1,52 @@
+/**
+ * QuickLinkedList.optimize on a list whose sublists were left uneven by
+ * random inserts and removes.
+ *
+ * @author Kefei D. Zhou
+ */
+
+package quicklist.bench;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OptimizeBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"100", "1000", "10000"})
+    public int fragment;
+
+    private List<Integer> list;
+
+
+    // optimize leaves the list balanced, so it is made uneven again, the
+    // same way, before every call; a call takes milliseconds, long enough
+    // for per-invocation setup to stay out of the timing
+    @Setup(Level.Invocation)
+    public void setUp() {
+        list = Lists.filled("QuickLinkedList:" + fragment, size);
+        Random random = new Random(42);
+        for (int i = 0; i < size / 10; i++) {
+            list.add(random.nextInt(list.size()), i);
+            list.remove(random.nextInt(list.size()));
+        }
+    }
+
+
+    @Benchmark
+    public List<Integer> optimize() {
+        Lists.optimize(list, fragment);
+        return list;
+    }
+
+//End
+}
@@ -0,0 +1,82 @@
+/**
+ * Positional operations of the List implementations: get, set, insert and
+ * remove at an index, and indexOf of the value found at an index, for
+ * every access pattern.
+ *
+ * QuickLinkedList is run once per fragment size, named as
+ * QuickLinkedList:fragment; pick one with -p impl=... to narrow the run.
+ *
+ * @author Kefei D. Zhou
+ */
+
+package quicklist.bench;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PositionalBenchmark {
+
+    @Param({"ArrayList", "LinkedList", "QuickLinkedList:100", "QuickLinkedList:1000", "QuickLinkedList:10000"})
+    public String impl;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"sequential", "random", "head", "tail"})
+    public String pattern;
+
+    private List<Integer> list;
+    private int[] indices;
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = Lists.filled(impl, size);
+        indices = Lists.indices(pattern, size);
+    }
+
+
+    private int nextIndex() {
+        int i = indices[next];
+        next = (next + 1) & (Lists.OPS - 1);
+        return i;
+    }
+
+
+    @Benchmark
+    public Integer get() {
+        return list.get(nextIndex());
+    }
+
+
+    @Benchmark
+    public Integer set() {
+        int i = nextIndex();
+        return list.set(i, i);
+    }
+
+
+    // the size stays the same from one call to the next
+    @Benchmark
+    public Integer insertRemove() {
+        int i = nextIndex();
+        list.add(i, -1);
+        return list.remove(i);
+    }
+
+
+    @Benchmark
+    public int indexOf() {
+        return list.indexOf(nextIndex());
+    }
+
+//End
+}
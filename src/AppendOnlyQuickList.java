@@ -0,0 +1,251 @@
+/**
+ * AppendOnlyQuickList is a thread-safe list that only grows at its end, for
+ * many threads appending at a high rate, such as an event log.
+ *
+ * Elements are stored in sublists of a fixed power-of-two size that never
+ * move once allocated. A producer reserves its slot with one atomic increment
+ * of the tail counter, writes the element straight into the sublist holding
+ * that slot, and then publishes it. Slots are published in order, so the
+ * published size always covers a prefix of the list in which every element
+ * has been written, and get reads any index below it without locking.
+ *
+ * Sublists are found through a directory of buckets where bucket b holds 2^b
+ * sublists, so the directory never has to be copied to grow and a new
+ * sublist is installed with a single compare-and-set. The producer taking
+ * the first slot of a sublist allocates the next one ahead of time.
+ *
+ * A producer waits for the producers that reserved slots before it to
+ * publish theirs, spinning briefly and then yielding. A thread descheduled
+ * between reserving and publishing holds up publication, but not
+ * reservation, for the others.
+ *
+ * Elements cannot be removed or replaced.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class AppendOnlyQuickList<E> extends AbstractList<E>
+    implements Collection<E>, List<E>, Iterable<E> {
+
+
+    // number of buckets, enough for Integer.MAX_VALUE sublists
+    private static final int BUCKETS = 32;
+
+    // times a producer spins waiting to publish before yielding the cpu
+    // to the producers it waits for
+    private static final int SPINS = 100;
+
+    // largest number of elements the list can hold
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 1;
+
+    // bucket b holds the sublists 2^b - 1 to 2^(b+1) - 2
+    private final AtomicReferenceArray<AtomicReferenceArray<Object[]>> buckets;
+
+    // reserved: slots handed out to producers
+    // published: slots written and visible to readers
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicInteger published = new AtomicInteger();
+
+    // fragment: size of each sublist, a power of two
+    // shift, mask: split an index into sublist number and offset
+    private final int fragment, shift, mask;
+
+
+    /**
+     * Construct an empty list with sublists of 1024 elements
+     *
+     */
+    public AppendOnlyQuickList() {
+        this(1000);
+    }
+
+
+    /**
+     * Construct an empty list with the specific sublist size, rounded up
+     * to a power of two
+     *
+     */
+    public AppendOnlyQuickList(int fragment) {
+        if (fragment < 0 || fragment > 1 << 30)
+            throw new IllegalArgumentException();
+        this.fragment = fragment <= 1 ? 1 : Integer.highestOneBit(fragment - 1) << 1;
+        shift = Integer.numberOfTrailingZeros(this.fragment);
+        mask = this.fragment - 1;
+        buckets = new AtomicReferenceArray<AtomicReferenceArray<Object[]>>(BUCKETS);
+        allocate(0);
+    }
+
+
+    /**
+     * Returns the number of published elements in this list.
+     * @return the number of elements in this list.
+     */
+    public int size() {
+        return published.get();
+    }
+
+
+    /**
+     * Return the size of sublists
+     * @return size of the sublists
+     */
+    public int getSublistSize(){
+        return fragment;
+    }
+
+
+    /**
+     * Returns the element at the specified position in this list.
+     * @param index index of element to return.
+     * @return the element at the specified position in this list.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+     */
+    public E get(int index) {
+        if (index >= published.get() || index < 0)
+            throw new IndexOutOfBoundsException();
+        return element(chunk(index >>> shift)[index & mask]);
+    }
+
+
+    /**
+     * Appends the specified element to the end of this list. The element
+     * is visible to readers once this call returns.
+     * @param o element to be appended to this list.
+     * @return true (as per the general contract of Collection.add).
+     * @throws IllegalStateException if the list is full.
+     */
+    public boolean add(E o) {
+        int i = reserve(1);
+        allocate(i >>> shift)[i & mask] = o;
+        if ((i & mask) == 0 && i < MAX_SIZE - fragment)
+            allocate((i >>> shift) + 1);
+        publish(i, 1);
+        return true;
+    }
+
+
+    /**
+     * Appends all of the elements in the specified Collection to the end of
+     * this list as one contiguous block, reserved with a single atomic add.
+     * @param c the elements to be appended to this list.
+     * @return true if this list changed as a result of the call.
+     * @throws NullPointerException if the specified collection is null.
+     * @throws IllegalStateException if the list is full.
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        if (c == null)
+            throw new NullPointerException();
+
+        Object[] a = c.toArray();
+        if (a.length == 0)
+            return false;
+
+        int start = reserve(a.length);
+        for (int done = 0; done < a.length; ) {
+            int i = start + done;
+            int n = Math.min(a.length - done, fragment - (i & mask));
+            System.arraycopy(a, done, allocate(i >>> shift), i & mask, n);
+            done += n;
+        }
+        publish(start, a.length);
+        return true;
+    }
+
+
+    /**
+     * Returns an iterator over the elements published when it was created.
+     * It reads the sublists directly and never throws
+     * ConcurrentModificationException.
+     * @return an iterator over the elements in this list in proper sequence.
+     */
+    public Iterator<E> iterator() {
+        final int end = published.get();
+        return new Iterator<E>() {
+
+            private int cursor;
+            private Object[] chunk;
+
+            public boolean hasNext() {
+                return cursor < end;
+            }
+
+            public E next() {
+                if (cursor >= end)
+                    throw new NoSuchElementException();
+                if (chunk == null || (cursor & mask) == 0)
+                    chunk = chunk(cursor >>> shift);
+                return element(chunk[cursor++ & mask]);
+            }
+        };
+    }
+
+
+    /**
+     * Reserve n consecutive slots and return the first one
+     */
+    private int reserve(int n) {
+        long i = reserved.getAndAdd(n);
+        if (i + n > MAX_SIZE)
+            throw new IllegalStateException("list is full");
+        return (int)i;
+    }
+
+
+    /**
+     * Make the slots [i, i + n) visible once all slots before them are
+     */
+    private void publish(int i, int n) {
+        for (int spins = 0; published.get() != i; spins++) {
+            if (spins < SPINS)
+                Thread.onSpinWait();
+            else
+                Thread.yield();
+        }
+        published.set(i + n);
+    }
+
+
+    /**
+     * Return sublist c, which must have been allocated
+     */
+    private Object[] chunk(int c) {
+        int b = 31 - Integer.numberOfLeadingZeros(c + 1);
+        return buckets.get(b).get(c + 1 - (1 << b));
+    }
+
+
+    /**
+     * Return sublist c, installing it and its bucket first if needed
+     */
+    private Object[] allocate(int c) {
+        int b = 31 - Integer.numberOfLeadingZeros(c + 1);
+        int slot = c + 1 - (1 << b);
+
+        AtomicReferenceArray<Object[]> bucket = buckets.get(b);
+        if (bucket == null) {
+            buckets.compareAndSet(b, null, new AtomicReferenceArray<Object[]>(1 << b));
+            bucket = buckets.get(b);
+        }
+        Object[] chunk = bucket.get(slot);
+        if (chunk == null) {
+            bucket.compareAndSet(slot, null, new Object[fragment]);
+            chunk = bucket.get(slot);
+        }
+        return chunk;
+    }
+
+
+    // the stored element, which was added to this list as an E
+    @SuppressWarnings("unchecked")
+    private static <E> E element(Object o) {
+        return (E)o;
+    }
+
+
+//End
+}
@@ -0,0 +1,406 @@
+/**
+ * ChunkIndex keeps track of the sizes of the sublists of a chunked list in a
+ * Fenwick (binary indexed) tree, so that the sublist holding a given index can
+ * be found in O(log n) of the number of sublists instead of walking them one
+ * by one from the head.
+ *
+ * A position is returned as a single long with the sublist number in the high
+ * 32 bits and the offset inside that sublist in the low 32 bits, see
+ * chunk(long) and offset(long).
+ *
+ * The index also remembers the sublist the last lookup landed in and where
+ * it starts (the finger). A lookup in that sublist or one of its two
+ * neighbours is answered from the finger without searching the tree, so
+ * walking a list with get(i), get(i + 1), ... or inserting near the last
+ * insert costs O(1) per call. Size changes, and sublists added or removed
+ * at either end, keep the finger up to date; inserting or removing
+ * sublists elsewhere drops it.
+ *
+ * Every lookup may move the finger, so an index with a finger must not be
+ * read by several threads at once. Lists read concurrently create theirs
+ * with ChunkIndex(false), which never keeps a finger and never writes on
+ * lookup.
+ *
+ * Free slots are kept in front of the first sublist as well as after the
+ * last, so sublists are added and removed at either end in amortized
+ * O(log n). Inserting or removing one in the middle rebuilds the tree.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+class ChunkIndex implements Serializable {
+
+    // sizes: size of each sublist, sublist k in slot base + k
+    // tree: fenwick tree over the slots of sizes, 1-based
+    private int[] sizes, tree;
+
+    // count: number of sublists
+    // total: sum of all sublist sizes
+    // base: free slots in front of the first sublist, all of size 0
+    private int count, total, base;
+
+    // sublist of the last lookup in the high 32 bits, index of its first
+    // element in the low 32 bits; NONE if unknown or not kept
+    private long finger = NONE;
+
+    // whether lookups keep the finger
+    private final boolean fingered;
+
+    private static final long NONE = -1;
+
+    public static final long serialVersionUID = 42L;
+
+
+    ChunkIndex() {
+        this(true);
+    }
+
+
+    /**
+     * Create an empty index
+     * @param fingered false for an index read by several threads at once,
+     *        whose lookups always search the tree
+     */
+    ChunkIndex(boolean fingered) {
+        this.fingered = fingered;
+        sizes = new int[16];
+        tree = new int[17];
+    }
+
+
+    /**
+     * Return an independent copy of this index
+     */
+    ChunkIndex copy() {
+        ChunkIndex copy = new ChunkIndex(fingered);
+        copy.sizes = sizes.clone();
+        copy.tree = tree.clone();
+        copy.count = count;
+        copy.total = total;
+        copy.base = base;
+        copy.finger = finger;
+        return copy;
+    }
+
+
+    /**
+     * Return the sublist number of a position returned by locate(int)
+     */
+    static int chunk(long pos) {
+        return (int)(pos >>> 32);
+    }
+
+
+    /**
+     * Return the offset inside the sublist of a position returned by locate(int)
+     */
+    static int offset(long pos) {
+        return (int)pos;
+    }
+
+
+    /**
+     * Return the position of the given offset inside the given sublist, in
+     * the form returned by locate(int)
+     */
+    static long position(int chunk, int offset) {
+        return ((long)chunk << 32) | offset;
+    }
+
+
+    /**
+     * Number of sublists tracked
+     */
+    int count() {
+        return count;
+    }
+
+
+    /**
+     * Sum of the sizes of all sublists
+     */
+    int total() {
+        return total;
+    }
+
+
+    /**
+     * Size of the given sublist
+     */
+    int size(int chunk) {
+        return sizes[base + chunk];
+    }
+
+
+    /**
+     * Return a copy of the sizes of all sublists
+     */
+    int[] sizes() {
+        return Arrays.copyOfRange(sizes, base, base + count);
+    }
+
+
+    /**
+     * Remove all sublists
+     */
+    void clear() {
+        Arrays.fill(sizes, 0, base + count, 0);
+        Arrays.fill(tree, 0, base + count + 1, 0);
+        count = 0;
+        total = 0;
+        base = 0;
+        finger = NONE;
+    }
+
+
+    /**
+     * Append a sublist of the given size. Runs in O(log n).
+     */
+    void add(int size) {
+        ensureCapacity(count + 1);
+        int end = base + ++count;
+        sizes[end - 1] = size;
+        total += size;
+
+        // node i covers (i - lowbit(i), i]
+        int low = end - (end & -end);
+        tree[end] = size + prefix(end - 1) - prefix(low);
+    }
+
+
+    /**
+     * Insert a sublist of the given size before the given sublist. Runs in
+     * amortized O(log n) before the first or after the last sublist, and
+     * in O(n) elsewhere.
+     */
+    void insert(int chunk, int size) {
+        if (chunk == count) {
+            add(size);
+            return;
+        }
+        if (chunk == 0) {
+            if (base == 0)
+                layout(Math.max(count, 4), count + 1);
+            base--;
+            sizes[base] = size;
+            count++;
+            total += size;
+            for (int i = base + 1; i <= base + count; i += i & -i)
+                tree[i] += size;
+            // every sublist moved up one and starts size later
+            if (finger != NONE)
+                finger += (1L << 32) + size;
+            return;
+        }
+        ensureCapacity(count + 1);
+        System.arraycopy(sizes, base + chunk, sizes, base + chunk + 1, count - chunk);
+        sizes[base + chunk] = size;
+        count++;
+        total += size;
+        rebuild();
+    }
+
+
+    /**
+     * Insert n sublists with the given sizes before the given sublist.
+     * Runs in O(n) of the total number of sublists.
+     */
+    void insert(int chunk, int[] sizes, int n) {
+        ensureCapacity(count + n);
+        System.arraycopy(this.sizes, base + chunk, this.sizes, base + chunk + n, count - chunk);
+        System.arraycopy(sizes, 0, this.sizes, base + chunk, n);
+        count += n;
+        for (int i = 0; i < n; i++)
+            total += sizes[i];
+        rebuild();
+    }
+
+
+    /**
+     * Remove the given sublist. Runs in O(1) for the last one, O(log n)
+     * for the first one, and O(n) elsewhere.
+     */
+    void remove(int chunk) {
+        int slot = base + chunk, size = sizes[slot];
+        total -= size;
+        if (chunk == count - 1) {
+            // no other node covers the last one
+            sizes[slot] = 0;
+            tree[base + count--] = 0;
+            if (finger != NONE && chunk(finger) == chunk)
+                finger = NONE;
+            return;
+        }
+        if (chunk == 0) {
+            // leave the slot free in front of the others
+            for (int i = slot + 1; i <= base + count; i += i & -i)
+                tree[i] -= size;
+            sizes[slot] = 0;
+            base++;
+            count--;
+            if (finger != NONE)
+                finger = chunk(finger) == 0 ? NONE : finger - (1L << 32) - size;
+            return;
+        }
+        System.arraycopy(sizes, slot + 1, sizes, slot, count - chunk - 1);
+        sizes[base + --count] = 0;
+        rebuild();
+    }
+
+
+    /**
+     * Remove the sublists [from, to). Runs in O(n).
+     */
+    void remove(int from, int to) {
+        for (int i = from; i < to; i++)
+            total -= sizes[base + i];
+        System.arraycopy(sizes, base + to, sizes, base + from, count - to);
+        Arrays.fill(sizes, base + count - (to - from), base + count, 0);
+        count -= to - from;
+        rebuild();
+    }
+
+
+    /**
+     * Change the size of the given sublist. Runs in O(log n).
+     */
+    void update(int chunk, int delta) {
+        sizes[base + chunk] += delta;
+        total += delta;
+        if (finger != NONE && chunk < chunk(finger))
+            finger += delta;
+        for (int i = base + chunk + 1; i <= base + count; i += i & -i)
+            tree[i] += delta;
+    }
+
+
+    /**
+     * Return the index of the first element of the given sublist, that is
+     * the sum of the sizes of all sublists before it.
+     */
+    int offset(int chunk) {
+        long f = finger;
+        if (f != NONE && chunk(f) == chunk)
+            return offset(f);
+        return prefix(base + chunk);
+    }
+
+
+    /**
+     * Find the sublist holding the element at the given index.
+     * Empty sublists are skipped.
+     * @param index index of element, 0 <= index < total()
+     * @return sublist number and offset packed as a long
+     */
+    long locate(int index) {
+        if (!fingered)
+            return search(index);
+        long f = finger;
+        if (f != NONE) {
+            int k = chunk(f), start = offset(f), slot = base + k;
+            if (index >= start) {
+                if (index - start < sizes[slot])
+                    return ((long)k << 32) | (index - start);
+                start += sizes[slot];
+                if (k + 1 < count && index >= start && index - start < sizes[slot + 1])
+                    return moveFinger(k + 1, start, index);
+            }
+            else if (k > 0 && index >= start - sizes[slot - 1])
+                return moveFinger(k - 1, start - sizes[slot - 1], index);
+        }
+
+        long pos = search(index);
+        return moveFinger(chunk(pos), index - offset(pos), index);
+    }
+
+
+    /**
+     * Return the number of tree levels a lookup of the given index would
+     * walk: 0 if the finger answers it, the depth of the tree otherwise
+     */
+    int levels(int index) {
+        long f = finger;
+        if (f != NONE) {
+            int k = chunk(f), start = offset(f), slot = base + k;
+            int from = k > 0 ? start - sizes[slot - 1] : start;
+            int to = start + sizes[slot] + (k + 1 < count ? sizes[slot + 1] : 0);
+            if (index >= from && index < to)
+                return 0;
+        }
+        return Integer.SIZE - Integer.numberOfLeadingZeros(base + count);
+    }
+
+
+    // point the finger at sublist k starting at start, and return the
+    // position of index inside it
+    private long moveFinger(int k, int start, int index) {
+        finger = ((long)k << 32) | start;
+        return ((long)k << 32) | (index - start);
+    }
+
+
+    // search the tree for the sublist holding index; the free slots in
+    // front are empty, so the slot found is never before base
+    private long search(int index) {
+        int end = base + count, pos = 0;
+        for (int step = Integer.highestOneBit(end); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= end && tree[next] <= index) {
+                pos = next;
+                index -= tree[next];
+            }
+        }
+        return ((long)(pos - base) << 32) | index;
+    }
+
+
+    // sum of the sizes in the first n slots
+    private int prefix(int n) {
+        int sum = 0;
+        for (int i = n; i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+
+
+    // recompute the whole tree from sizes in O(n)
+    private void rebuild() {
+        finger = NONE;
+        Arrays.fill(tree, 0);
+        int end = base + count;
+        for (int i = 1; i <= end; i++) {
+            tree[i] += sizes[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= end)
+                tree[parent] += tree[i];
+        }
+    }
+
+
+    // make room for n sublists after base, first taking back free slots
+    // in front when there are more of them than sublists
+    private void ensureCapacity(int n) {
+        if (base + n > sizes.length)
+            layout(Math.min(base, count), n);
+    }
+
+
+    // move the sublists to start at slot front, with room for n of them,
+    // and rebuild the tree in O(n)
+    private void layout(int front, int n) {
+        int capacity = sizes.length;
+        if (front + n > capacity)
+            capacity = Math.max(front + n, capacity * 2);
+        int[] moved = new int[capacity];
+        System.arraycopy(sizes, base, moved, front, count);
+        sizes = moved;
+        tree = new int[capacity + 1];
+        base = front;
+        rebuild();
+    }
+
+//End
+}
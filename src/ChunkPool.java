@@ -0,0 +1,116 @@
+/**
+ * ChunkPool keeps sublists thrown away by QuickLinkedLists so that new
+ * sublists can reuse their arrays instead of allocating fresh ones. Lists
+ * opt in with setChunkPool, and any number of lists, on any threads, can
+ * share one pool. A list that is filled and cleared over and over, or that
+ * has elements added at one end and removed at the other, then allocates
+ * nothing once the pool holds enough sublists.
+ *
+ * A sublist is emptied, its slots set to null, before it is kept, so the
+ * pool never holds on to elements. The pool keeps at most maxChunks
+ * sublists and lets the garbage collector have the rest. Sublists that a
+ * snapshot or clone may still be reading are never handed to the pool.
+ *
+ * A sublist that grew to more than twice the room its list asks for new
+ * sublists is not kept, and a pooled one with more than twice the room
+ * asked for is dropped instead of being handed out, so lists with small
+ * sublists do not end up holding the large arrays of others.
+ *
+ * @author Kefei D. Zhou
+ */
+
+public class ChunkPool {
+
+    // chunks: pooled sublists, chunks[0, count) are in use
+    private final RingList<?>[] chunks;
+    private int count;
+
+    // most room a sublist may have, as a multiple of the room asked for
+    private static final int SLACK = 2;
+
+
+    /**
+     * Create an empty pool
+     * @param maxChunks the most sublists the pool keeps.
+     * @throws IllegalArgumentException if maxChunks is negative.
+     */
+    public ChunkPool(int maxChunks) {
+        if (maxChunks < 0)
+            throw new IllegalArgumentException();
+        chunks = new RingList<?>[maxChunks];
+    }
+
+
+    /**
+     * Returns the number of sublists held by the pool.
+     * @return the number of pooled sublists.
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+
+    /**
+     * Returns the most sublists the pool keeps.
+     * @return the pool's bound.
+     */
+    public int maxChunks() {
+        return chunks.length;
+    }
+
+
+    /**
+     * Lets go of every pooled sublist.
+     */
+    public synchronized void clear() {
+        while (count > 0)
+            chunks[--count] = null;
+    }
+
+
+    /**
+     * Return an empty sublist with room for at least the given number of
+     * elements, reusing a pooled one if there is any
+     */
+    <E> RingList<E> take(int capacity) {
+        RingList<E> array = null;
+        synchronized (this) {
+            while (count > 0 && array == null) {
+                // only ever holds emptied sublists, so any element type will do
+                @SuppressWarnings("unchecked")
+                RingList<E> pooled = (RingList<E>)chunks[--count];
+                chunks[count] = null;
+                if (fits(pooled, capacity))
+                    array = pooled;
+            }
+        }
+        if (array == null)
+            return new RingList<E>(capacity);
+        array.ensureCapacity(capacity);
+        return array;
+    }
+
+
+    /**
+     * Empty a sublist that is no longer used by any list and keep it if
+     * the pool is not full and it is not much larger than the given room,
+     * which its list asks for new sublists
+     */
+    void recycle(RingList<?> array, int capacity) {
+        if (!fits(array, capacity))
+            return;
+        array.clear();
+        synchronized (this) {
+            if (count < chunks.length)
+                chunks[count++] = array;
+        }
+    }
+
+
+    // true if the sublist does not have much more room than asked for
+    private static boolean fits(RingList<?> array, int capacity) {
+        return array.capacity() <= SLACK * Math.max(capacity, 1);
+    }
+
+//End
+}
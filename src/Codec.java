@@ -0,0 +1,59 @@
+/**
+ * A Codec turns elements into a fixed number of bytes and back, so that
+ * lists such as OffHeapQuickList can keep their elements in a ByteBuffer
+ * instead of as objects on the heap.
+ *
+ * Codecs for the boxed primitive types are provided as constants.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.nio.ByteBuffer;
+
+public interface Codec<E> {
+
+    /**
+     * Return the number of bytes used by every element
+     * @return width of an encoded element in bytes
+     */
+    int width();
+
+
+    /**
+     * Write an element at the given absolute position of the buffer
+     * @param buf buffer to write into
+     * @param pos byte position of the element
+     * @param e element to write
+     */
+    void write(ByteBuffer buf, int pos, E e);
+
+
+    /**
+     * Read the element stored at the given absolute position of the buffer
+     * @param buf buffer to read from
+     * @param pos byte position of the element
+     * @return the element
+     */
+    E read(ByteBuffer buf, int pos);
+
+
+    Codec<Integer> INT = new Codec<Integer>() {
+        public int width() { return 4; }
+        public void write(ByteBuffer buf, int pos, Integer e) { buf.putInt(pos, e); }
+        public Integer read(ByteBuffer buf, int pos) { return buf.getInt(pos); }
+    };
+
+    Codec<Long> LONG = new Codec<Long>() {
+        public int width() { return 8; }
+        public void write(ByteBuffer buf, int pos, Long e) { buf.putLong(pos, e); }
+        public Long read(ByteBuffer buf, int pos) { return buf.getLong(pos); }
+    };
+
+    Codec<Double> DOUBLE = new Codec<Double>() {
+        public int width() { return 8; }
+        public void write(ByteBuffer buf, int pos, Double e) { buf.putDouble(pos, e); }
+        public Double read(ByteBuffer buf, int pos) { return buf.getDouble(pos); }
+    };
+
+//End
+}
@@ -0,0 +1,486 @@
+/**
+ * ConcurrentQuickList is a thread-safe QuickLinkedList. Instead of one lock
+ * around the whole list, every sublist has its own StampedLock and the list
+ * of sublists (the spine) has another one:
+ *
+ * - get and set take the spine lock shared and then lock only the sublist
+ *   they touch; get first tries an optimistic read and takes the sublist's
+ *   read lock only if a writer got in the way. Readers and writers working
+ *   on different sublists never wait for each other.
+ *
+ * - add(E) takes the spine lock shared and the lock of the last sublist, so
+ *   appends run alongside reads and writes anywhere else in the list. Only
+ *   when the last sublist is full does an append take the spine lock
+ *   exclusively to start a new one.
+ *
+ * - Positional inserts and removes, which may split or merge sublists, take
+ *   the spine lock exclusively.
+ *
+ * The last sublist is kept out of the ChunkIndex so appends never touch the
+ * index, which is only changed while the spine is held exclusively. Every
+ * sublist has room for twice the fragment size, so it never moves while a
+ * reader may be looking at it.
+ *
+ * Iterators are weakly consistent: they never throw
+ * ConcurrentModificationException, and copy one sublist at a time under
+ * its read lock.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+public class ConcurrentQuickList<E> extends AbstractList<E>
+    implements Collection<E>, List<E>, Iterable<E> {
+
+
+    /**
+     * A sublist with its own lock
+     */
+    private static final class Chunk {
+
+        final Object[] items;
+        int size;
+        final StampedLock lock = new StampedLock();
+
+        Chunk(int capacity) {
+            items = new Object[capacity];
+        }
+    }
+
+    // sublists except the last one, and their sizes
+    private final ArrayList<Chunk> list;
+    private final ChunkIndex index;
+
+    // last sublist, where appends go
+    private Chunk tail;
+
+    // guards list, index and tail
+    private final StampedLock spine = new StampedLock();
+
+    // size: track the size of the entire list
+    private volatile int size;
+
+    // fragment: size of each sublist
+    // capacity: room in each sublist
+    private final int fragment, capacity;
+
+
+    /**
+     * Construct an empty list with the default sublist size of 1000
+     *
+     */
+    public ConcurrentQuickList() {
+        this(1000);
+    }
+
+
+    /**
+     * Construct an empty list with the specific sublist size
+     *
+     */
+    public ConcurrentQuickList(int fragment) {
+        if(fragment < 0)
+            throw new IllegalArgumentException();
+        this.fragment = fragment;
+        capacity = Math.max(2 * fragment, 1) + 1;
+        list = new ArrayList<Chunk>();
+        // readers share the index, so it must not keep a finger
+        index = new ChunkIndex(false);
+        tail = new Chunk(capacity);
+    }
+
+
+    /**
+     * Returns the number of elements in this list.
+     * @return the number of elements in this list.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Return the size of sublists
+     * @return size of the sublists
+     */
+    public int getSublistSize(){
+        return fragment;
+    }
+
+
+    /**
+     * Returns the element at the specified position in this list.
+     * @param index index of element to return.
+     * @return the element at the specified position in this list.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+     */
+    public E get(int index) {
+        long stamp = spine.readLock();
+        try {
+            if (index >= size || index < 0)
+                throw new IndexOutOfBoundsException();
+            long pos = locate(index);
+            Chunk chunk = chunk(ChunkIndex.chunk(pos));
+            int offset = ChunkIndex.offset(pos);
+
+            long s = chunk.lock.tryOptimisticRead();
+            if (s != 0) {
+                Object e = chunk.items[offset];
+                if (chunk.lock.validate(s))
+                    return element(e);
+            }
+
+            s = chunk.lock.readLock();
+            try {
+                return element(chunk.items[offset]);
+            } finally {
+                chunk.lock.unlockRead(s);
+            }
+        } finally {
+            spine.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Replaces the element at the specified position in this list with the specified element.
+     * @param index index of element to replace.
+     * @param element element to be stored at the specified position.
+     * @return the element previously at the specified position.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size()).
+     */
+    public E set(int index, E element) {
+        long stamp = spine.readLock();
+        try {
+            if (index >= size || index < 0)
+                throw new IndexOutOfBoundsException();
+            long pos = locate(index);
+            Chunk chunk = chunk(ChunkIndex.chunk(pos));
+            int offset = ChunkIndex.offset(pos);
+
+            long s = chunk.lock.writeLock();
+            try {
+                E current = element(chunk.items[offset]);
+                chunk.items[offset] = element;
+                return current;
+            } finally {
+                chunk.lock.unlockWrite(s);
+            }
+        } finally {
+            spine.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Appends the specified element to the end of this list.
+     * @param o element to be appended to this list.
+     * @return true (as per the general contract of Collection.add).
+     */
+    public boolean add(E o) {
+        long stamp = spine.readLock();
+        try {
+            Chunk last = tail;
+            long s = last.lock.writeLock();
+            try {
+                if (last.size < Math.max(fragment, 1)) {
+                    last.items[last.size++] = o;
+                    size++;
+                    return true;
+                }
+            } finally {
+                last.lock.unlockWrite(s);
+            }
+        } finally {
+            spine.unlockRead(stamp);
+        }
+
+        // last sublist is full: start a new one
+        stamp = spine.writeLock();
+        try {
+            if (tail.size >= Math.max(fragment, 1)) {
+                list.add(tail);
+                index.add(tail.size);
+                tail = new Chunk(capacity);
+            }
+            tail.items[tail.size++] = o;
+            size++;
+            return true;
+        } finally {
+            spine.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+    * Inserts the specified element at the specified position in this list.
+    * Shifts the element currently at that position (if any) and any subsequent
+    * elements to the right (adds one to their indices).
+    * @param index index at which the specified element is to be inserted.
+    * @param o element to be inserted.
+    * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+    */
+    public void add(int index, E o) {
+        long stamp = spine.writeLock();
+        try {
+            if (index > size || index < 0)
+                throw new IndexOutOfBoundsException();
+
+            attachTail();
+            int k;
+            Chunk chunk;
+            int offset;
+            if (index == size) {
+                k = list.size() - 1;
+                chunk = list.get(k);
+                offset = chunk.size;
+            }
+            else {
+                long pos = this.index.locate(index);
+                k = ChunkIndex.chunk(pos);
+                chunk = list.get(k);
+                offset = ChunkIndex.offset(pos);
+            }
+            System.arraycopy(chunk.items, offset, chunk.items, offset + 1, chunk.size - offset);
+            chunk.items[offset] = o;
+            chunk.size++;
+            this.index.update(k, 1);
+            size++;
+            rebalance(k);
+            detachTail();
+        } finally {
+            spine.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Removes the element at the specified position in this list. Shifts any
+     * subsequent elements to the left (subtracts one from their indices).
+     * @param index the index of the element to removed.
+     * @return the element that was removed from the list.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size())
+     */
+    public E remove(int index) {
+        long stamp = spine.writeLock();
+        try {
+            if (index >= size || index < 0)
+                throw new IndexOutOfBoundsException();
+
+            attachTail();
+            long pos = this.index.locate(index);
+            int k = ChunkIndex.chunk(pos), offset = ChunkIndex.offset(pos);
+            Chunk chunk = list.get(k);
+            E removed = element(chunk.items[offset]);
+            System.arraycopy(chunk.items, offset + 1, chunk.items, offset, chunk.size - offset - 1);
+            chunk.items[--chunk.size] = null;
+            this.index.update(k, -1);
+            size--;
+            rebalance(k);
+            detachTail();
+            return removed;
+        } finally {
+            spine.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Removes all of the elements from this list.
+     *
+     */
+    public void clear() {
+        long stamp = spine.writeLock();
+        try {
+            list.clear();
+            index.clear();
+            tail = new Chunk(capacity);
+            size = 0;
+        } finally {
+            spine.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Returns a weakly consistent iterator over the elements in this list.
+     * It copies one sublist at a time and never throws
+     * ConcurrentModificationException. remove is not supported.
+     * @return an iterator over the elements in this list in proper sequence.
+     */
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            // copy of the current sublist, and position in it
+            private Object[] batch = new Object[0];
+            private int cursor, next;
+
+            public boolean hasNext() {
+                if (cursor < batch.length)
+                    return true;
+                batch = copyFrom(next);
+                next += batch.length;
+                cursor = 0;
+                return batch.length > 0;
+            }
+
+            public E next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return element(batch[cursor++]);
+            }
+        };
+    }
+
+
+    public int indexOf(Object o) {
+        int i = 0;
+        for (E e : this) {
+            if (o == null ? e == null : o.equals(e))
+                return i;
+            i++;
+        }
+        return -1;
+    }
+
+
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+
+    /**
+     * Copy the elements from index to the end of the sublist holding it,
+     * an empty array if index is past the end of the list
+     */
+    private Object[] copyFrom(int index) {
+        long stamp = spine.readLock();
+        try {
+            if (index >= size)
+                return new Object[0];
+            long pos = locate(index);
+            Chunk chunk = chunk(ChunkIndex.chunk(pos));
+            int offset = ChunkIndex.offset(pos);
+
+            long s = chunk.lock.readLock();
+            try {
+                return Arrays.copyOfRange(chunk.items, offset, chunk.size);
+            } finally {
+                chunk.lock.unlockRead(s);
+            }
+        } finally {
+            spine.unlockRead(stamp);
+        }
+    }
+
+
+    // position of index, with the last sublist numbered list.size();
+    // caller holds the spine lock and has checked index < size
+    private long locate(int index) {
+        int body = this.index.total();
+        if (index >= body)
+            return ((long)list.size() << 32) | (index - body);
+        return this.index.locate(index);
+    }
+
+
+    // sublist k as numbered by locate
+    private Chunk chunk(int k) {
+        return k == list.size() ? tail : list.get(k);
+    }
+
+
+    // move the last sublist into the index, caller holds the spine exclusively
+    private void attachTail() {
+        list.add(tail);
+        index.add(tail.size);
+    }
+
+
+    // take the last sublist out of the index again
+    private void detachTail() {
+        int last = list.size() - 1;
+        tail = list.remove(last);
+        index.remove(last);
+    }
+
+
+    /**
+     * Keep the given sublist between the low and high water marks, the same
+     * way QuickLinkedList does. Caller holds the spine exclusively.
+     */
+    private void rebalance(int k) {
+        int n = list.get(k).size;
+        if (n > Math.max(2 * fragment, 1))
+            split(k);
+        else if ((n < fragment / 4 || n == 0) && list.size() > 1)
+            merge(k);
+    }
+
+
+    private void split(int k) {
+        Chunk chunk = list.get(k);
+        int half = chunk.size / 2, moved = chunk.size - half;
+        Chunk next = new Chunk(capacity);
+        System.arraycopy(chunk.items, half, next.items, 0, moved);
+        Arrays.fill(chunk.items, half, chunk.size, null);
+        chunk.size = half;
+        next.size = moved;
+
+        list.add(k + 1, next);
+        index.update(k, -moved);
+        index.insert(k + 1, moved);
+    }
+
+
+    private void merge(int k) {
+        if (list.get(k).size == 0) {
+            list.remove(k);
+            index.remove(k);
+            return;
+        }
+
+        int left = k;
+        if (k == list.size() - 1 || (k > 0 && list.get(k - 1).size < list.get(k + 1).size))
+            left = k - 1;
+
+        Chunk l = list.get(left), r = list.get(left + 1);
+        if (l.size + r.size > capacity) {
+            // too much for one sublist, even the two out instead
+            Object[] all = new Object[l.size + r.size];
+            System.arraycopy(l.items, 0, all, 0, l.size);
+            System.arraycopy(r.items, 0, all, l.size, r.size);
+            int half = all.length / 2;
+            Arrays.fill(l.items, null);
+            Arrays.fill(r.items, null);
+            System.arraycopy(all, 0, l.items, 0, half);
+            System.arraycopy(all, half, r.items, 0, all.length - half);
+            index.update(left, half - l.size);
+            index.update(left + 1, all.length - half - r.size);
+            l.size = half;
+            r.size = all.length - half;
+            return;
+        }
+
+        System.arraycopy(r.items, 0, l.items, l.size, r.size);
+        l.size += r.size;
+        list.remove(left + 1);
+        index.update(left, r.size);
+        index.remove(left + 1);
+
+        if (l.size > Math.max(2 * fragment, 1))
+            split(left);
+    }
+
+
+    // the stored element, which was added to this list as an E
+    @SuppressWarnings("unchecked")
+    private static <E> E element(Object o) {
+        return (E)o;
+    }
+
+
+//End
+}
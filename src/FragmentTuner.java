@@ -0,0 +1,102 @@
+/**
+ * FragmentTuner counts the operations done on a chunked list and picks the
+ * fragment size that makes the observed mix cheapest.
+ *
+ * The cost model, in units of one element moved by an insert or remove:
+ *
+ *   inserts * f / 2                 shifting half a sublist on average
+ *   lookups * LOOKUP * log2(n / f)  walking the sublist index
+ *   scanned * CHUNK / f             stepping from sublist to sublist
+ *
+ * for fragment size f. Setting its derivative to zero gives
+ *
+ *   f = (L + sqrt(L^2 + 2 * inserts * CHUNK * scanned)) / inserts
+ *
+ * with L = LOOKUP * lookups / ln 2. The counts are halved after each
+ * decision so the choice follows the recent mix.
+ *
+ * @author Kefei D. Zhou
+ */
+
+class FragmentTuner {
+
+    // operations between two decisions
+    static final int PERIOD = 1 << 13;
+
+    // smallest and largest fragment size picked
+    static final int MIN_FRAGMENT = 16;
+    static final int MAX_FRAGMENT = 1 << 16;
+
+    // cost of one level of the sublist index, and of stepping to the next
+    // sublist during a scan, relative to moving one element
+    private static final double LOOKUP = 64;
+    private static final double CHUNK = 256;
+
+    // inserts: positional inserts and removes
+    // lookups: positional gets and sets
+    // scanned: elements visited by scans
+    private long inserts, lookups, scanned;
+
+    // operations since the last decision
+    private int ops;
+
+
+    /**
+     * Count a positional insert or remove
+     * @return true if it is time to call target
+     */
+    boolean insert() {
+        inserts++;
+        return ++ops >= PERIOD;
+    }
+
+
+    /**
+     * Count a positional get or set
+     * @return true if it is time to call target
+     */
+    boolean lookup() {
+        lookups++;
+        return ++ops >= PERIOD;
+    }
+
+
+    /**
+     * Count a scan over n elements
+     * @return true if it is time to call target
+     */
+    boolean scan(int n) {
+        scanned += n;
+        return ++ops >= PERIOD;
+    }
+
+
+    /**
+     * Decide on the fragment size for the mix seen so far. The current size
+     * is kept unless the best one is at least twice as large or half as
+     * small, so the list is not re-chunked for small gains.
+     * @param fragment current fragment size
+     * @return the fragment size to use from now on
+     */
+    int target(int fragment) {
+        double best;
+        if (inserts == 0)
+            best = lookups + scanned > 0 ? MAX_FRAGMENT : fragment;
+        else {
+            double l = LOOKUP * lookups / Math.log(2);
+            best = (l + Math.sqrt(l * l + 2.0 * inserts * CHUNK * scanned)) / inserts;
+        }
+        int f = (int)Math.max(MIN_FRAGMENT, Math.min(MAX_FRAGMENT, best));
+
+        inserts >>= 1;
+        lookups >>= 1;
+        scanned >>= 1;
+        ops = 0;
+
+        if (f >= 2 * fragment || 2 * f <= fragment)
+            return f;
+        return fragment;
+    }
+
+//End
+}
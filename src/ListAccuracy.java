@@ -143,6 +143,105 @@ public class ListAccuracy extends TestCase{
     }
 
 
+    // tests indexOf, lastIndexOf and the parallel searches over many sublists
+    public void testSearch(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(50);
+
+        for(int i = 0; i < 200000; i++){
+            int a = (int)(Math.random() * 50000);
+            array.add(a);
+            q.add(a);
+        }
+
+        for(int i = 0; i < 200; i++){
+            int a = (int)(Math.random() * 60000);
+            assertEquals(array.indexOf(a), q.indexOf(a));
+            assertEquals(array.lastIndexOf(a), q.lastIndexOf(a));
+            assertEquals(array.indexOf(a), q.parallelIndexOf(a));
+            assertEquals(array.lastIndexOf(a), q.parallelLastIndexOf(a));
+            assertEquals(array.contains(a), q.parallelContains(a));
+        }
+    }
+
+
+    // tests the value index stays right through every kind of change
+    public void testValueIndex(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(8);
+        q.setValueIndexed(true);
+        assertTrue(q.isValueIndexed());
+
+        for(int i = 0; i < 2000; i++){
+            int a = (int)(Math.random() * 300);
+            int p = (int)(Math.random() * (array.size() + 1));
+            switch(i % 8){
+            case 0: array.add(a); q.add(a); break;
+            case 1: array.add(p, a); q.add(p, a); break;
+            case 2: if(p < array.size()) assertEquals(array.set(p, a), q.set(p, a)); break;
+            case 3: assertEquals(array.remove((Integer)a), q.remove((Integer)a)); break;
+            case 4: if(p < array.size()) assertEquals(array.remove(p), q.remove(p)); break;
+            case 5: array.addAll(p, Arrays.asList(a, a + 1, a + 2)); q.addAll(p, Arrays.asList(a, a + 1, a + 2)); break;
+            case 6:
+                int e = Math.min(array.size(), p + (int)(Math.random() * 20));
+                array.subList(p, e).clear(); q.subList(p, e).clear();
+                break;
+            case 7:
+                QuickLinkedList<Integer> tail = q.splitAt(p);
+                tail.add(0, a);
+                array.add(p, a);
+                q.append(tail);
+                break;
+            }
+        }
+        assertEquals(array, q);
+
+        ListIterator it = q.listIterator();
+        while(it.hasNext()){
+            int v = (Integer)it.next();
+            if(v % 5 == 0)
+                it.remove();
+            else if(v % 5 == 1)
+                it.set(v + 1000);
+            else if(v % 5 == 2)
+                it.add(v + 2000);
+        }
+        it = array.listIterator();
+        while(it.hasNext()){
+            int v = (Integer)it.next();
+            if(v % 5 == 0)
+                it.remove();
+            else if(v % 5 == 1)
+                it.set(v + 1000);
+            else if(v % 5 == 2)
+                it.add(v + 2000);
+        }
+        q.optimize(5);
+
+        assertEquals(array, q);
+        for(int v = -1; v < 2400; v++){
+            assertEquals(array.contains(v), q.contains(v));
+            assertEquals(array.indexOf(v), q.indexOf(v));
+            assertEquals(array.lastIndexOf(v), q.lastIndexOf(v));
+        }
+
+        // sublists added and dropped in front move the others
+        for(int i = 0; i < 3000; i++){
+            int a = (int)(Math.random() * 300);
+            if(i % 4 == 3){
+                assertEquals(array.remove(0), q.pollFirst());
+            }
+            else{
+                array.add(0, a);
+                q.addFirst(a);
+            }
+            if(i % 10 == 0){
+                assertEquals(array.indexOf(a), q.indexOf(a));
+                assertEquals(array.lastIndexOf(a), q.lastIndexOf(a));
+            }
+        }
+        assertEquals(array, q);
+    }
+
+
     // test get and set method
     public void testGets(){
 
@@ -164,6 +263,1325 @@ public class ListAccuracy extends TestCase{
     }
 
 
+    // test positional operations across many small sublists
+    public void testIndexed(){
+        unrolled = new QuickLinkedList<Integer>(10);
+
+        for(int i = 0; i < 1000; i++){
+            array.add(i);
+            unrolled.add(i);
+        }
+
+        for(int i = 0; i < 2000; i++){
+            int a = (int)(Math.random() * (array.size() + 1));
+            array.add(a, i);
+            unrolled.add(a, i);
+
+            int b = (int)(Math.random() * array.size());
+            assertEquals(array.remove(b), unrolled.remove(b));
+
+            int c = (int)(Math.random() * array.size());
+            assertEquals(array.set(c, -i), unrolled.set(c, -i));
+        }
+
+        assertEquals(array.size(), unrolled.size());
+        for(int i = 0; i < array.size(); i++){
+            assertEquals(array.get(i), unrolled.get(i));
+        }
+    }
+
+
+    // test that sublists are split and merged under heavy churn
+    public void testRebalance(){
+        unrolled = new QuickLinkedList<Integer>(16);
+
+        // insert everything at the same spot
+        for(int i = 0; i < 5000; i++){
+            linked.add(linked.size() / 2, i);
+            unrolled.add(unrolled.size() / 2, i);
+        }
+        assertEquals(linked, unrolled);
+
+        // drain from the front until almost empty
+        while(linked.size() > 3){
+            int a = (int)(Math.random() * Math.min(40, linked.size()));
+            assertEquals(linked.remove(a), unrolled.remove(a));
+        }
+        assertEquals(linked, unrolled);
+
+        for(int i = 0; i < 1000; i++){
+            linked.add(i);
+            unrolled.add(i);
+            assertTrue(linked.remove(Integer.valueOf(i / 2)) == unrolled.remove(Integer.valueOf(i / 2)));
+        }
+        assertEquals(linked, unrolled);
+    }
+
+
+    // test iterator and list iterator against LinkedList
+    public void testIterator(){
+        unrolled = new QuickLinkedList<Integer>(8);
+
+        for(int i = 0; i < 1000; i++){
+            linked.add(i);
+            unrolled.add(i);
+        }
+
+        // walk forward removing, replacing and inserting
+        ListIterator l1 = linked.listIterator(), l2 = unrolled.listIterator();
+        while(l1.hasNext()){
+            assertEquals(l1.nextIndex(), l2.nextIndex());
+            int i = (Integer)l1.next();
+            assertEquals(i, l2.next());
+            if(i % 3 == 0){
+                l1.remove();
+                l2.remove();
+            }
+            else if(i % 3 == 1){
+                l1.set(-i);
+                l2.set(-i);
+            }
+            else{
+                l1.add(-i);
+                l2.add(-i);
+            }
+        }
+        assertFalse(l2.hasNext());
+        assertEquals(linked, unrolled);
+
+        // walk backward
+        l1 = linked.listIterator(linked.size());
+        l2 = unrolled.listIterator(unrolled.size());
+        while(l1.hasPrevious()){
+            int i = (Integer)l1.previous();
+            assertEquals(i, l2.previous());
+            if(i % 5 == 0){
+                l1.remove();
+                l2.remove();
+            }
+            else if(i % 5 == 1){
+                l1.add(7);
+                l2.add(7);
+                assertEquals(l1.previous(), l2.previous());
+            }
+        }
+        assertEquals(linked.size(), unrolled.size());
+        assertEquals(linked, unrolled);
+
+        int j = 0;
+        for(Object o : unrolled)
+            assertEquals(linked.get(j++), o);
+
+        // fail-fast on outside modification
+        Iterator it = unrolled.iterator();
+        it.next();
+        unrolled.add(1);
+        try{
+            it.next();
+            fail();
+        }catch(ConcurrentModificationException e){}
+    }
+
+
+    // test spliterator splitting and parallel streams
+    public void testSpliterator(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(100);
+        long sum = 0;
+        for(int i = 0; i < 100000; i++){
+            q.add(i);
+            sum += i;
+        }
+        for(int i = 0; i < 1000; i++)
+            q.add((int)(Math.random() * q.size()), 0);
+
+        assertEquals(sum, q.parallelStream().mapToLong(Integer::longValue).sum());
+        assertEquals(q.size(), q.parallelStream().count());
+        assertEquals(new ArrayList<Integer>(q), q.parallelStream().collect(java.util.stream.Collectors.toList()));
+
+        // advance a few, then split: sizes must add up
+        Spliterator<Integer> s1 = q.spliterator();
+        for(int i = 0; i < 10; i++)
+            assertTrue(s1.tryAdvance(x -> {}));
+        long before = s1.estimateSize();
+        Spliterator<Integer> s2 = s1.trySplit();
+        assertEquals(before, s1.estimateSize() + s2.estimateSize());
+        assertEquals(before, s1.getExactSizeIfKnown() + s2.getExactSizeIfKnown());
+        assertTrue(s2.tryAdvance(x -> assertEquals(q.get(10), x)));
+    }
+
+
+    // test the primitive lists against ArrayList
+    public void testPrimitive(){
+        QuickIntList ints = new QuickIntList(10);
+        QuickLongList longs = new QuickLongList(10);
+        QuickDoubleList doubles = new QuickDoubleList(10);
+
+        for(int i = 0; i < 1000; i++){
+            array.add(i);
+            ints.addInt(i);
+            longs.addLong(i);
+            doubles.addDouble(i);
+        }
+
+        for(int i = 0; i < 3000; i++){
+            int a = (int)(Math.random() * (array.size() + 1));
+            array.add(a, i);
+            ints.addInt(a, i);
+            longs.addLong(a, i);
+            doubles.addDouble(a, i);
+
+            int b = (int)(Math.random() * array.size());
+            int v = (Integer)array.remove(b);
+            assertEquals(v, ints.removeAt(b));
+            assertEquals(v, longs.removeAt(b));
+            assertEquals(v, doubles.removeAt(b), 0);
+
+            if(i % 2 == 0 && array.size() > 100){
+                int c = (int)(Math.random() * array.size());
+                array.remove(c);
+                ints.remove(c);
+                longs.remove(c);
+                doubles.remove(c);
+            }
+        }
+
+        assertEquals(array, ints);
+        int[] values = ints.toIntArray();
+        for(int i = 0; i < array.size(); i++){
+            assertEquals(array.get(i), values[i]);
+            assertEquals(((Integer)array.get(i)).longValue(), longs.getLong(i));
+            assertEquals(((Integer)array.get(i)).doubleValue(), doubles.getDouble(i), 0);
+        }
+
+        int a = (Integer)array.get(array.size() / 2);
+        assertEquals(array.indexOf(a), ints.indexOfInt(a));
+        assertEquals(array.indexOf(a), longs.indexOfLong(a));
+        assertEquals(array.indexOf(a), doubles.indexOfDouble(a));
+        assertEquals(-1, ints.indexOf(-5));
+
+        QuickIntList copy = (QuickIntList)ints.clone();
+        ints.optimize(100);
+        assertEquals(array, ints);
+        ints.setInt(0, -1);
+        assertEquals(array.get(0), copy.getInt(0));
+    }
+
+
+    // test the off-heap list, in direct buffers and in a mapped file
+    public void testOffHeap() throws Exception{
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("quick", ".bin");
+        OffHeapQuickList<Long> direct = new OffHeapQuickList<Long>(Codec.LONG, 10);
+        OffHeapQuickList<Long> mapped = new OffHeapQuickList<Long>(Codec.LONG, 10, file);
+
+        for(long i = 0; i < 1000; i++){
+            linked.add(i);
+            direct.add(i);
+            mapped.add(i);
+        }
+
+        for(int i = 0; i < 3000; i++){
+            int a = (int)(Math.random() * (linked.size() + 1));
+            linked.add(a, (long)i);
+            direct.add(a, (long)i);
+            mapped.add(a, (long)i);
+
+            int b = (int)(Math.random() * linked.size());
+            Object removed = linked.remove(b);
+            assertEquals(removed, direct.remove(b));
+            assertEquals(removed, mapped.remove(b));
+
+            int c = (int)(Math.random() * linked.size());
+            assertEquals(linked.set(c, -1L), direct.set(c, -1L));
+            mapped.set(c, -1L);
+        }
+
+        assertEquals(linked, direct);
+        assertEquals(linked, mapped);
+
+        direct.clear();
+        assertEquals(0, direct.size());
+        direct.add(5L);
+        assertEquals(Long.valueOf(5), direct.get(0));
+
+        mapped.close();
+        java.nio.file.Files.delete(file);
+
+        // bad arguments are refused before the file is opened
+        try{
+            new OffHeapQuickList<Long>(Codec.LONG, -1, file);
+            fail();
+        }catch(IllegalArgumentException e){}
+        try{
+            new OffHeapQuickList<Long>(null, 10, file);
+            fail();
+        }catch(NullPointerException e){}
+        assertFalse(java.nio.file.Files.exists(file));
+    }
+
+
+    // test java serialization and the binary file format
+    public void testSerialization() throws Exception{
+        // streams of the old field-by-field form are refused, not misread
+        assertTrue(java.io.ObjectStreamClass.lookup(QuickLinkedList.class).getSerialVersionUID() != 42L);
+
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(30);
+        QuickIntList ints = new QuickIntList(30);
+        QuickDoubleList doubles = new QuickDoubleList(30);
+        for(int i = 0; i < 5000; i++){
+            int a = (int)(Math.random() * (q.size() + 1));
+            q.add(a, i);
+            ints.addInt(a, i);
+            doubles.addDouble(a, i / 3.0);
+        }
+        q.setValueIndexed(true);
+
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes);
+        out.writeObject(q);
+        out.writeObject(ints);
+        out.writeObject(new QuickLinkedList<Integer>());
+        out.close();
+        java.io.ObjectInputStream in = new java.io.ObjectInputStream(
+            new java.io.ByteArrayInputStream(bytes.toByteArray()));
+        QuickLinkedList<Integer> q2 = (QuickLinkedList<Integer>)in.readObject();
+        QuickIntList ints2 = (QuickIntList)in.readObject();
+        QuickLinkedList<Integer> empty = (QuickLinkedList<Integer>)in.readObject();
+
+        assertEquals(q, q2);
+        assertEquals(30, q2.getSublistSize());
+        assertTrue(q2.isValueIndexed());
+        assertEquals(q.indexOf(1234), q2.indexOf(1234));
+        assertEquals(ints, ints2);
+        assertEquals(0, empty.size());
+        q2.add(0, -1);
+        ints2.addInt(0, -1);
+        empty.add(-1);
+        assertEquals(-1, (int)q2.get(0));
+        assertEquals(-1, ints2.getInt(0));
+
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("quick", ".qls");
+        java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(file,
+            java.nio.file.StandardOpenOption.READ, java.nio.file.StandardOpenOption.WRITE);
+        try{
+            QuickListFile.write(q, Codec.INT, channel);
+            assertEquals(q, QuickListFile.read(channel, Codec.INT));
+
+            QuickListFile.write(ints, channel);
+            QuickIntList ints3 = QuickListFile.readIntList(channel);
+            assertEquals(ints, ints3);
+            assertEquals(ints, QuickListFile.read(channel, Codec.INT));
+            ints3.addInt(2500, 7);
+            ints3.removeAt(0);
+
+            QuickListFile.write(doubles, channel);
+            assertEquals(doubles, QuickListFile.readDoubleList(channel));
+            try{
+                QuickListFile.readIntList(channel);
+                fail();
+            } catch(java.io.IOException e){}
+
+            QuickListFile.write(new QuickLongList(), channel);
+            assertEquals(0, QuickListFile.readLongList(channel).size());
+        } finally{
+            channel.close();
+            java.nio.file.Files.delete(file);
+        }
+    }
+
+
+    // test opening, changing and flushing a mapped list file
+    public void testMapped() throws Exception{
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("quick", ".qls");
+        QuickLinkedList<Long> q = new QuickLinkedList<Long>(20);
+        for(long i = 0; i < 3000; i++){
+            q.add(i);
+            linked.add(i);
+        }
+        java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(file,
+            java.nio.file.StandardOpenOption.READ, java.nio.file.StandardOpenOption.WRITE);
+        QuickListFile.write(q, Codec.LONG, channel);
+        channel.close();
+
+        try{
+            MappedQuickList<Long> m = new MappedQuickList<Long>(Codec.LONG, file);
+            assertEquals(20, m.getSublistSize());
+            assertEquals(linked.size(), m.size());
+            assertEquals(linked.get(1234), m.get(1234));
+
+            for(int round = 0; round < 3; round++){
+                for(int i = 0; i < 1000; i++){
+                    int a = (int)(Math.random() * (linked.size() + 1));
+                    linked.add(a, (long)-i);
+                    m.add(a, (long)-i);
+                    int b = (int)(Math.random() * linked.size());
+                    assertEquals(linked.remove(b), m.remove(b));
+                    if(i % 3 == 0){
+                        int c = (int)(Math.random() * linked.size());
+                        assertEquals(linked.set(c, (long)i), m.set(c, (long)i));
+                    }
+                    if(i % 5 == 0){
+                        linked.add((long)i);
+                        m.add((long)i);
+                    }
+                }
+                assertEquals(linked, m);
+                m.close();
+
+                m = new MappedQuickList<Long>(Codec.LONG, file);
+                assertEquals(linked, m);
+            }
+
+            Iterator<Long> it = m.iterator();
+            while(it.hasNext())
+                if(it.next() % 2 == 0)
+                    it.remove();
+            it = linked.iterator();
+            while(it.hasNext())
+                if(it.next() % 2 == 0)
+                    it.remove();
+            m.close();
+
+            channel = java.nio.channels.FileChannel.open(file, java.nio.file.StandardOpenOption.READ);
+            assertEquals(linked, QuickListFile.read(channel, Codec.LONG));
+            channel.close();
+
+            m = new MappedQuickList<Long>(Codec.LONG, 5, file);
+            for(long i = 0; i < 100; i++)
+                m.add(i);
+            m.close();
+            m = new MappedQuickList<Long>(Codec.LONG, file);
+            assertEquals(100, m.size());
+            assertEquals(99L, (long)m.get(99));
+            m.clear();
+            m.close();
+            assertEquals(0, new MappedQuickList<Long>(Codec.LONG, file).size());
+
+            // chunks grown in place after a reopen must not run into
+            // chunks placed at the end of the file
+            ArrayList<Long> expected = new ArrayList<Long>();
+            m = new MappedQuickList<Long>(Codec.LONG, 4, file);
+            for(long i = 0; i < 9; i++){
+                m.add(i);
+                expected.add(i);
+            }
+            m.flush();
+            for(long i = 9; i < 14; i++){
+                m.add(i);
+                expected.add(i);
+            }
+            m.close();
+            for(int round = 0; round < 4; round++){
+                m = new MappedQuickList<Long>(Codec.LONG, file);
+                assertEquals(expected, m);
+                for(int i = 0; i < 40; i++){
+                    m.add(0, 100L + i);
+                    expected.add(0, 100L + i);
+                }
+                m.flush();
+                for(long i = 200; i < 203; i++){
+                    m.add(i);
+                    expected.add(i);
+                }
+                m.close();
+            }
+            m = new MappedQuickList<Long>(Codec.LONG, file);
+            assertEquals(expected, m);
+            m.close();
+
+            // a file of more chunks than the system allows mappings
+            QuickLinkedList<Long> many = new QuickLinkedList<Long>(1);
+            for(long i = 0; i < 100000; i++)
+                many.add(i);
+            channel = java.nio.channels.FileChannel.open(file,
+                java.nio.file.StandardOpenOption.READ, java.nio.file.StandardOpenOption.WRITE);
+            QuickListFile.write(many, Codec.LONG, channel);
+            channel.close();
+            m = new MappedQuickList<Long>(Codec.LONG, file);
+            assertEquals(many, m);
+            m.close();
+        } finally{
+            java.nio.file.Files.delete(file);
+        }
+    }
+
+
+    // test bulk insertion at the end and in the middle
+    public void testAddAll(){
+        unrolled = new QuickLinkedList<Integer>(10);
+
+        for(int i = 0; i < 200; i++){
+            List<Integer> batch = new ArrayList<Integer>();
+            int n = (int)(Math.random() * 40);
+            for(int j = 0; j < n; j++)
+                batch.add(i * 100 + j);
+
+            int a = (int)(Math.random() * (array.size() + 1));
+            if(i % 3 == 0){
+                assertEquals(array.addAll(batch), unrolled.addAll(batch));
+            }
+            else{
+                assertEquals(array.addAll(a, batch), unrolled.addAll(a, batch));
+            }
+            assertEquals(array.size(), unrolled.size());
+        }
+        assertEquals(array, unrolled);
+
+        for(int i = 0; i < array.size(); i += 7)
+            assertEquals(array.get(i), unrolled.get(i));
+
+        unrolled.addAll(0, unrolled);
+        array.addAll(0, array);
+        assertEquals(array, unrolled);
+
+        // a short insert at the start of a short last sublist merges it away
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(16);
+        List<Integer> expected = new ArrayList<Integer>();
+        for(int i = 0; i < 33; i++){
+            q.add(i);
+            expected.add(i);
+        }
+        q.addAll(32, List.of(100));
+        expected.addAll(32, List.of(100));
+        assertEquals(expected, q);
+        assertEquals(34, q.size());
+    }
+
+
+    // test removeRange through subList views
+    public void testSubList(){
+        unrolled = new QuickLinkedList<Integer>(10);
+
+        for(int i = 0; i < 5000; i++){
+            array.add(i);
+            unrolled.add(i);
+        }
+
+        for(int i = 0; i < 200; i++){
+            int a = (int)(Math.random() * array.size());
+            int b = a + (int)(Math.random() * Math.min(30, array.size() - a));
+            array.subList(a, b).clear();
+            unrolled.subList(a, b).clear();
+            assertEquals(array.size(), unrolled.size());
+        }
+        assertEquals(array, unrolled);
+
+        // nested views
+        List s1 = array.subList(10, 500).subList(5, 100);
+        List s2 = unrolled.subList(10, 500).subList(5, 100);
+        assertEquals(s1, s2);
+        s1.add(3, -1);
+        s2.add(3, -1);
+        s1.remove(50);
+        s2.remove(50);
+        s1.set(0, -2);
+        s2.set(0, -2);
+        s1.addAll(7, Arrays.asList(1, 2, 3));
+        s2.addAll(7, Arrays.asList(1, 2, 3));
+        assertEquals(s1.size(), s2.size());
+        for(int i = 0; i < s1.size(); i++)
+            assertEquals(s1.get(i), s2.get(i));
+
+        ListIterator l1 = s1.listIterator(s1.size()), l2 = s2.listIterator(s2.size());
+        while(l1.hasPrevious()){
+            assertEquals(l1.previous(), l2.previous());
+            l1.remove();
+            l2.remove();
+        }
+        assertEquals(0, s2.size());
+        assertEquals(array, unrolled);
+
+        // drop everything
+        unrolled.subList(0, unrolled.size()).clear();
+        assertEquals(0, unrolled.size());
+        unrolled.add(1);
+        assertEquals(1, unrolled.get(0));
+    }
+
+
+    // test append and splitAt
+    public void testAppendSplit(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(10);
+        List<Integer> expected = new ArrayList<Integer>();
+
+        for(int i = 0; i < 50; i++){
+            QuickLinkedList<Integer> other = new QuickLinkedList<Integer>(10);
+            int n = (int)(Math.random() * 60);
+            for(int j = 0; j < n; j++){
+                other.add(i * 100 + j);
+                expected.add(i * 100 + j);
+            }
+            q.append(other);
+            assertEquals(0, other.size());
+            assertEquals(expected.size(), q.size());
+        }
+        assertEquals(expected, q);
+
+        for(int i = 0; i < 50; i++){
+            int a = (int)(Math.random() * (q.size() + 1));
+            QuickLinkedList<Integer> tail = q.splitAt(a);
+            assertEquals(expected.subList(0, a), q);
+            assertEquals(expected.subList(a, expected.size()), tail);
+
+            tail.add(0, -i);
+            q.add(-i);
+            q.append(tail);
+            expected.add(a, -i);
+            expected.add(a, -i);
+            assertEquals(expected, q);
+        }
+
+        QuickLinkedList<Integer> all = q.splitAt(0);
+        assertEquals(0, q.size());
+        assertEquals(expected, all);
+        q.append(all);
+        assertEquals(expected, q);
+    }
+
+
+    // test that snapshots and clones are not changed by the original and back
+    public void testSnapshot(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(10);
+        q.setValueIndexed(true);
+        for(int i = 0; i < 500; i++)
+            q.add(i);
+        List<Integer> expected = new ArrayList<Integer>(q);
+
+        QuickLinkedList<Integer> snap = q.snapshot();
+        QuickLinkedList<Integer> copy = (QuickLinkedList<Integer>)q.clone();
+        List<Integer> before = new ArrayList<Integer>(expected);
+        assertFalse(snap.isValueIndexed());
+        assertTrue(copy.isValueIndexed());
+
+        for(int i = 0; i < 300; i++){
+            int a = (int)(Math.random() * expected.size());
+            switch(i % 5){
+                case 0: q.add(a, -i); expected.add(a, -i); break;
+                case 1: q.remove(a); expected.remove(a); break;
+                case 2: q.set(a, -i); expected.set(a, -i); break;
+                case 3: q.add(-i); expected.add(-i); break;
+                default: q.subList(a, Math.min(a + 5, expected.size())).clear();
+                    expected.subList(a, Math.min(a + 5, expected.size())).clear();
+            }
+        }
+        assertEquals(expected, q);
+        assertEquals(before, snap);
+        assertEquals(before, copy);
+        assertEquals(expected.indexOf(-2), q.indexOf(-2));
+        assertEquals(before.indexOf(250), copy.indexOf(250));
+
+        // change the copies and check the original is untouched
+        for(int i = 0; i < 100; i++){
+            snap.set(i, 1000 + i);
+            copy.remove(0);
+            before.set(i, 1000 + i);
+        }
+        assertEquals(expected, q);
+        assertEquals(before, snap);
+        assertEquals(before.subList(100, before.size()), copy.subList(0, copy.size()));
+        assertFalse(copy.contains(99));
+
+        // snapshots of snapshots, split and append
+        QuickLinkedList<Integer> again = snap.snapshot();
+        QuickLinkedList<Integer> tail = snap.splitAt(200);
+        tail.set(0, -1);
+        snap.append(tail);
+        before.set(200, -1);
+        assertEquals(before, snap);
+        assertEquals(-1, (int)snap.get(200));
+        assertEquals(before.get(201), again.get(201));
+        assertFalse(again.get(200).equals(-1));
+    }
+
+
+    // test the concurrent list alone and under concurrent appends and reads
+    public void testConcurrent() throws Exception{
+        final ConcurrentQuickList<Integer> c = new ConcurrentQuickList<Integer>(10);
+
+        for(int i = 0; i < 2000; i++){
+            int a = (int)(Math.random() * (array.size() + 1));
+            array.add(a, i);
+            c.add(a, i);
+            if(i % 3 == 0){
+                int b = (int)(Math.random() * array.size());
+                assertEquals(array.remove(b), c.remove(b));
+            }
+            if(array.size() > 0){
+                int d = (int)(Math.random() * array.size());
+                assertEquals(array.set(d, -i), c.set(d, -i));
+            }
+        }
+        assertEquals(array, c);
+
+        c.clear();
+        final int producers = 4, count = 20000;
+        final int[] errors = new int[1];
+        Thread[] threads = new Thread[producers + 2];
+        for(int t = 0; t < producers; t++){
+            final int id = t;
+            threads[t] = new Thread(){
+                public void run(){
+                    for(int i = 0; i < count; i++)
+                        c.add(id * count + i);
+                }
+            };
+        }
+        for(int t = producers; t < threads.length; t++){
+            threads[t] = new Thread(){
+                public void run(){
+                    for(int i = 0; i < count; i++){
+                        int n = c.size();
+                        if(n > 0 && c.get((int)(Math.random() * n)) == null)
+                            errors[0]++;
+                    }
+                }
+            };
+        }
+        for(Thread t : threads)
+            t.start();
+        for(Thread t : threads)
+            t.join();
+
+        assertEquals(0, errors[0]);
+        assertEquals(producers * count, c.size());
+        Set<Integer> seen = new HashSet<Integer>(c);
+        assertEquals(producers * count, seen.size());
+    }
+
+
+    // test the append-only list under concurrent appends and reads
+    public void testAppendOnly() throws Exception{
+        final AppendOnlyQuickList<Integer> c = new AppendOnlyQuickList<Integer>(100);
+        assertEquals(128, c.getSublistSize());
+
+        final int producers = 4, count = 50000;
+        final int[] errors = new int[1];
+        Thread[] threads = new Thread[producers + 2];
+        for(int t = 0; t < producers; t++){
+            final int id = t;
+            threads[t] = new Thread(){
+                public void run(){
+                    for(int i = 0; i < count; ){
+                        if(i % 7 == 0 && i + 50 <= count){
+                            List<Integer> block = new ArrayList<Integer>();
+                            for(int j = 0; j < 50; j++)
+                                block.add(id * count + i++);
+                            c.addAll(block);
+                        }
+                        else
+                            c.add(id * count + i++);
+                    }
+                }
+            };
+        }
+        for(int t = producers; t < threads.length; t++){
+            threads[t] = new Thread(){
+                public void run(){
+                    for(int i = 0; i < count; i++){
+                        int n = c.size();
+                        if(n > 0 && c.get((int)(Math.random() * n)) == null)
+                            errors[0]++;
+                    }
+                }
+            };
+        }
+        for(Thread t : threads)
+            t.start();
+        for(Thread t : threads)
+            t.join();
+
+        assertEquals(0, errors[0]);
+        assertEquals(producers * count, c.size());
+
+        // every producer's elements are there once and in its own order
+        int[] next = new int[producers];
+        for(int v : c){
+            int id = v / count;
+            assertEquals(id * count + next[id]++, v);
+        }
+        for(int t = 0; t < producers; t++)
+            assertEquals(count, next[t]);
+
+        try{
+            c.remove(0);
+            fail();
+        } catch(UnsupportedOperationException e){}
+    }
+
+
+    // test that optimizeStep balances the sublists a little at a time
+    public void testOptimizeStep(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(100);
+        q.setValueIndexed(true);
+        for(int i = 0; i < 20000; i++){
+            int a = (int)(Math.random() * (array.size() + 1));
+            q.add(a, i);
+            array.add(a, i);
+        }
+        // leave many short sublists behind
+        for(int i = 0; i < 12000; i++){
+            int a = (int)(Math.random() * array.size());
+            assertEquals(array.remove(a), q.remove(a));
+        }
+        QuickLinkedList<Integer> snap = q.snapshot();
+        List<Integer> before = new ArrayList<Integer>(array);
+
+        int calls = 0;
+        while(!q.optimizeStep(50)){
+            assertTrue(++calls < 10000);
+            if(calls % 10 == 0){
+                int a = (int)(Math.random() * array.size());
+                q.add(a, -calls);
+                array.add(a, -calls);
+                assertEquals(array.get(a / 2), q.get(a / 2));
+            }
+        }
+        assertTrue(calls > 1);
+        assertFalse(q.optimizeStep(0));
+        assertTrue(q.optimizeStep(1000000));
+        assertEquals(array, q);
+        assertEquals(before, snap);
+        for(int v = -50; v < 100; v++)
+            assertEquals(array.indexOf(v), q.indexOf(v));
+
+        // after a pass every sublist is within half and one and a half
+        // times the fragment size, so a stop-the-world optimize changes
+        // nothing about the contents
+        q.optimize(100);
+        assertEquals(array, q);
+    }
+
+
+    // test that the adaptive fragment size follows the operation mix
+    public void testAdaptive(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>();
+        q.setAdaptive(true);
+        assertTrue(q.isAdaptive());
+        for(int i = 0; i < 50000; i++){
+            q.add(i);
+            array.add(i);
+        }
+
+        // inserts and removes in the middle favour small sublists
+        for(int i = 0; i < 40000; i++){
+            int a = (int)(Math.random() * array.size());
+            if(i % 2 == 0){
+                q.add(a, -i);
+                array.add(a, -i);
+            }
+            else
+                assertEquals(array.remove(a), q.remove(a));
+        }
+        assertTrue(q.getSublistSize() < 1000);
+        assertEquals(array, q);
+
+        // gets favour large ones
+        int small = q.getSublistSize();
+        for(int i = 0; i < 40000; i++){
+            int a = (int)(Math.random() * array.size());
+            assertEquals(array.get(a), q.get(a));
+        }
+        for(int i = 0; i < 40000; i++)
+            q.add(i);
+        for(int i = 0; i < 40000; i++)
+            array.add(i);
+        assertTrue(q.getSublistSize() > small);
+        assertEquals(array, q);
+
+        q.setAdaptive(false);
+        assertFalse(q.isAdaptive());
+
+        // once gets switch the fragment size, scans alone bring the
+        // sublists to it, and iterators and views open across the steps
+        // carry on
+        QuickLinkedList<Integer> s = new QuickLinkedList<Integer>(16);
+        ArrayList<Integer> expected = new ArrayList<Integer>();
+        for(int i = 0; i < 50000; i++){
+            s.add(i);
+            expected.add(i);
+        }
+        s.setAdaptive(true);
+        ListIterator<Integer> it = s.listIterator();
+        for(int i = 0; i < 100; i++)
+            assertEquals(expected.get(i), it.next());
+        Spliterator<Integer> sp = s.spliterator();
+        sp.tryAdvance(x -> assertEquals(0, (int)x));
+        List<Integer> view = s.subList(100, 200);
+        for(int i = 0; i < FragmentTuner.PERIOD; i++)
+            assertEquals(expected.get(i), s.get(i));
+        assertEquals(FragmentTuner.MAX_FRAGMENT, s.getSublistSize());
+        assertTrue(s.chunkCount() > 1);
+        for(int i = 0; i < 100 && s.chunkCount() > 1; i++)
+            assertEquals(-1, s.indexOf(-1));
+        assertEquals(1, s.chunkCount());
+        assertEquals(expected, s);
+
+        assertEquals(expected.subList(100, 200), view);
+        ArrayList<Integer> rest = new ArrayList<Integer>();
+        sp.forEachRemaining(rest::add);
+        assertEquals(expected.subList(1, expected.size()), rest);
+        it.set(-1);
+        expected.set(99, -1);
+        assertEquals(expected.get(100), it.next());
+        it.remove();
+        expected.remove(100);
+        assertEquals(expected, s);
+    }
+
+
+    // test chunk shape statistics and their JMX export
+    public void testStats() throws Exception{
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(100);
+        for(int i = 0; i < 1000; i++)
+            q.add(i);
+        ListStats stats = q.stats();
+        assertSame(stats, q.stats());
+        assertEquals(10, stats.getChunkCount());
+        assertEquals(100, stats.getMinChunkSize());
+        assertEquals(100, stats.getMaxChunkSize());
+        assertEquals(1.0, stats.getMeanFill(), 1e-9);
+
+        // fragment the list
+        for(int i = 0; i < 30; i++)
+            q.add(150, -i);
+        assertEquals(10, stats.getChunkCount());
+        assertEquals(130, stats.getMaxChunkSize());
+        assertEquals(100, stats.getMedianChunkSize());
+        assertEquals(1030 / 10.0, stats.getMeanChunkSize(), 1e-9);
+        for(int i = 0; i < 200; i++)
+            q.add(150, -i);
+        assertTrue(stats.getChunkCount() > 10);
+        if(ListStats.ENABLED){
+            assertEquals(230, stats.getInserts());
+            assertTrue(stats.getSplits() > 0);
+            assertTrue(stats.getLookupLevels().length > 0);
+
+            // a walk in order is answered from the last sublist looked up
+            stats.reset();
+            for(int i = 0; i < q.size(); i++)
+                q.get(i);
+            long[] levels = stats.getLookupLevels();
+            assertTrue(levels[0] > q.size() - stats.getChunkCount() - 1);
+        }
+        else{
+            assertEquals(0, stats.getInserts());
+            assertEquals(0, stats.getLookupLevels().length);
+        }
+
+        javax.management.ObjectName name = stats.register("testStats");
+        try{
+            javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+            assertEquals(q.size(), server.getAttribute(name, "Size"));
+            assertEquals(stats.getChunkCount(), server.getAttribute(name, "ChunkCount"));
+        }
+        finally{
+            stats.unregister();
+        }
+        assertFalse(java.lang.management.ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+
+    // test deque operations against ArrayDeque
+    public void testDeque(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(50);
+        q.setValueIndexed(true);
+        ArrayDeque<Integer> d = new ArrayDeque<Integer>();
+        QuickLinkedList<Integer> snap = null;
+        List<Integer> frozen = null;
+        for(int i = 0; i < 50000; i++){
+            int op = (int)(Math.random() * 8);
+            if(op == 0 || op == 1){
+                q.addFirst(i);
+                d.addFirst(i);
+            }
+            else if(op == 2 || op == 3){
+                q.offerLast(i);
+                d.offerLast(i);
+            }
+            else if(op == 4 || op == 5)
+                assertEquals(d.pollFirst(), q.pollFirst());
+            else if(op == 6)
+                assertEquals(d.pollLast(), q.pollLast());
+            else{
+                assertEquals(d.peekFirst(), q.peekFirst());
+                assertEquals(d.peekLast(), q.peekLast());
+            }
+            assertEquals(d.size(), q.size());
+            if(i % 5000 == 0){
+                assertEquals(new ArrayList<Integer>(d), q);
+                if(!q.isEmpty())
+                    assertTrue(q.contains(q.getFirst()) && q.contains(q.getLast()));
+                snap = q.snapshot();
+                frozen = new ArrayList<Integer>(d);
+            }
+        }
+        assertEquals(new ArrayList<Integer>(d), q);
+        assertEquals(frozen, snap);
+
+        // FIFO use keeps few sublists
+        q.clear();
+        for(int i = 0; i < 100000; i++){
+            q.add(i);
+            if(i >= 100)
+                assertEquals(Integer.valueOf(i - 100), q.remove());
+        }
+        assertTrue(q.stats().getChunkCount() <= 4);
+
+        Iterator<Integer> it = q.descendingIterator();
+        for(int i = 99999; i >= 99900; i--)
+            assertEquals(Integer.valueOf(i), it.next());
+        assertFalse(it.hasNext());
+        q.clear();
+        assertNull(q.poll());
+        try{
+            q.removeLast();
+            fail();
+        }
+        catch(NoSuchElementException e){
+        }
+
+        // sublists added and dropped at the front keep positions right
+        LinkedList<Integer> expected = new LinkedList<Integer>();
+        for(int i = 0; i < 20000; i++){
+            if(i % 3 == 2){
+                assertEquals(expected.pollFirst(), q.pollFirst());
+            }
+            else{
+                q.push(i);
+                expected.push(i);
+            }
+            if(i % 97 == 0)
+                for(int j = 0; j < expected.size(); j += 37)
+                    assertEquals(expected.get(j), q.get(j));
+        }
+        assertEquals(expected, q);
+
+        // reverse-ordered view
+        QuickLinkedList.Reversed<Integer> r = q.reversed();
+        assertSame(q, r.reversed());
+        List<Integer> backwards = new ArrayList<Integer>(expected);
+        Collections.reverse(backwards);
+        assertEquals(backwards, r);
+        r.addFirst(-1);
+        r.addLast(-2);
+        assertEquals(Integer.valueOf(-1), q.getLast());
+        assertEquals(Integer.valueOf(-2), q.getFirst());
+        assertEquals(Integer.valueOf(-1), r.get(0));
+        r.add(1, -3);
+        assertEquals(Integer.valueOf(-3), q.get(q.size() - 2));
+        assertEquals(Integer.valueOf(-2), r.pollLast());
+        assertEquals(Integer.valueOf(-1), r.pop());
+        assertEquals(Integer.valueOf(-3), r.remove(0));
+        assertEquals(backwards, r);
+    }
+
+
+    // test positional access near the last position looked up
+    public void testFinger(){
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(30);
+        ArrayList<Integer> a = new ArrayList<Integer>();
+        for(int i = 0; i < 3000; i++){
+            q.add(i);
+            a.add(i);
+        }
+        int p = 1500;
+        for(int i = 0; i < 20000; i++){
+            p = Math.max(0, Math.min(a.size() - 1, p + (int)(Math.random() * 81) - 40));
+            int op = (int)(Math.random() * 5);
+            if(op == 0){
+                q.add(p, -i);
+                a.add(p, -i);
+            }
+            else if(op == 1)
+                assertEquals(a.remove(p), q.remove(p));
+            else if(op == 2)
+                assertEquals(a.set(p, i), q.set(p, i));
+            else if(op == 3 && i % 100 == 0){
+                q.subList(p / 2, p).clear();
+                a.subList(p / 2, p).clear();
+                p = p / 2;
+            }
+            else
+                assertEquals(a.get(p), q.get(p));
+            if(a.size() < 100)
+                for(int j = 0; j < 1000; j++){
+                    q.addFirst(j);
+                    a.add(0, j);
+                }
+        }
+        assertEquals(a, q);
+        for(int i = a.size() - 1; i >= 0; i--)
+            assertEquals(a.get(i), q.get(i));
+    }
+
+
+    // test sort, replaceAll and removeIf against ArrayList
+    public void testBulkOperations(){
+        for(int f : new int[]{1, 7, 100, 5000}){
+            QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(f);
+            ArrayList<Integer> a = new ArrayList<Integer>();
+            for(int i = 0; i < 100000; i++){
+                int num = (int)(Math.random() * 1000);
+                q.add(num);
+                a.add(num);
+            }
+            q.setValueIndexed(f == 100);
+            QuickLinkedList<Integer> snap = q.snapshot();
+            ArrayList<Integer> frozen = new ArrayList<Integer>(a);
+
+            // stable: equal keys keep their order
+            Comparator<Integer> byTens = new Comparator<Integer>(){
+                public int compare(Integer x, Integer y){
+                    return (x / 10) - (y / 10);
+                }
+            };
+            q.sort(byTens);
+            a.sort(byTens);
+            assertEquals(a, q);
+            q.sort(null);
+            Collections.sort(a);
+            assertEquals(a, q);
+
+            q.replaceAll(x -> x * 3);
+            a.replaceAll(x -> x * 3);
+            assertEquals(a, q);
+
+            assertTrue(q.removeIf(x -> x % 2 == 1));
+            a.removeIf(x -> x % 2 == 1);
+            assertEquals(a, q);
+            assertFalse(q.removeIf(x -> x < 0));
+            assertEquals(a.indexOf(300), q.indexOf(300));
+            assertEquals(a.lastIndexOf(300), q.lastIndexOf(300));
+            assertEquals(a.contains(6), q.contains(6));
+            q.add(500, -1);
+            a.add(500, -1);
+            assertEquals(a, q);
+
+            assertEquals(frozen, snap);
+            assertTrue(q.removeIf(x -> true));
+            assertTrue(q.isEmpty());
+            q.add(1);
+            assertEquals(1, q.size());
+            assertEquals(frozen, snap);
+        }
+
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(10);
+        for(int i = 0; i < 100; i++)
+            q.add(i);
+        try{
+            q.sort(new Comparator<Integer>(){
+                public int compare(Integer x, Integer y){
+                    if(x == 50 || y == 50)
+                        throw new IllegalStateException();
+                    return y - x;
+                }
+            });
+            fail();
+        }
+        catch(IllegalStateException e){
+        }
+        for(int i = 0; i < 100; i++)
+            assertEquals(Integer.valueOf(i), q.get(i));
+    }
+
+
+    // test sorted list searches against TreeMap counts
+    public void testSorted(){
+        SortedQuickList<Integer> s = new SortedQuickList<Integer>(20, null);
+        TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+        ArrayList<Integer> a = new ArrayList<Integer>();
+        for(int i = 0; i < 5000; i++){
+            int num = (int)(Math.random() * 2000);
+            int at = s.insertSorted(num);
+            assertEquals(num, (int)s.get(at));
+            counts.merge(num, 1, Integer::sum);
+            a.add(num);
+            if(i % 7 == 0){
+                int gone = s.remove((int)(Math.random() * s.size()));
+                if(counts.merge(gone, -1, Integer::sum) == 0)
+                    counts.remove(gone);
+                a.remove(Integer.valueOf(gone));
+            }
+        }
+        Collections.sort(a);
+        assertEquals(a, s);
+
+        for(int i = -10; i < 2010; i++){
+            assertEquals(counts.floorKey(i), s.floor(i));
+            assertEquals(counts.ceilingKey(i), s.ceiling(i));
+            assertEquals(counts.lowerKey(i), s.lower(i));
+            assertEquals(counts.higherKey(i), s.higher(i));
+            assertEquals(Collections.binarySearch(a, i) >= 0, s.binarySearch(i) >= 0);
+            if(s.binarySearch(i) < 0)
+                assertEquals(-s.binarySearch(i) - 1, -Collections.binarySearch(a, i) - 1);
+        }
+        List<Integer> r = s.range(500, 700);
+        assertEquals(new ArrayList<Integer>(counts.subMap(500, 700).keySet()), new ArrayList<Integer>(new TreeSet<Integer>(r)));
+        r.clear();
+        assertTrue(s.range(500, 700).isEmpty());
+        assertTrue(s.ceiling(500) == null || s.ceiling(500) >= 700);
+
+        // in-order batches are appended, others inserted
+        s.addAll(Arrays.asList(5000, 4000, 3000));
+        assertEquals(Integer.valueOf(5000), s.getLast());
+        s.addAll(Arrays.asList(1, 10000));
+        assertEquals(Integer.valueOf(10000), s.getLast());
+        assertEquals(Integer.valueOf(1), s.get(s.binarySearch(1)));
+
+        // equal elements keep their insertion order
+        SortedQuickList<String> byLength = new SortedQuickList<String>(3, Comparator.comparing(String::length));
+        for(String w : "the quick brown fox jumps over a lazy dog".split(" "))
+            byLength.add(w);
+        assertEquals(Arrays.asList("a", "the", "fox", "dog", "over", "lazy", "quick", "brown", "jumps"), byLength);
+
+        try{
+            s.set(0, 1);
+            fail();
+        }
+        catch(UnsupportedOperationException e){
+        }
+        try{
+            s.listIterator().add(1);
+            fail();
+        }
+        catch(UnsupportedOperationException e){
+        }
+        try{
+            s.subList(0, 5).add(1);
+            fail();
+        }
+        catch(UnsupportedOperationException e){
+        }
+        try{
+            s.addLast(1);
+            fail();
+        }
+        catch(UnsupportedOperationException e){
+        }
+        try{
+            s.offerLast(1);
+            fail();
+        }
+        catch(UnsupportedOperationException e){
+        }
+
+        // elements appended from another list are put in order
+        QuickLinkedList<Integer> other = new QuickLinkedList<Integer>(20);
+        other.add(20000);
+        other.add(-5);
+        other.add(700);
+        s.append(other);
+        assertTrue(other.isEmpty());
+        a = new ArrayList<Integer>(s);
+        Collections.sort(a);
+        assertEquals(a, s);
+        assertEquals(Integer.valueOf(-5), s.getFirst());
+        assertTrue(s.binarySearch(700) >= 0);
+    }
+
+
+    // test sublists recycled through a shared chunk pool
+    public void testChunkPool(){
+        ChunkPool pool = new ChunkPool(8);
+        QuickLinkedList<Integer> q = new QuickLinkedList<Integer>(100);
+        QuickLinkedList<Integer> r = new QuickLinkedList<Integer>(100);
+        q.setChunkPool(pool);
+        r.setChunkPool(pool);
+        assertSame(pool, q.getChunkPool());
+
+        for(int round = 0; round < 20; round++){
+            for(int i = 0; i < 1000; i++){
+                q.add(i);
+                r.addFirst(i);
+            }
+            for(int i = 0; i < 1000; i++){
+                assertEquals(Integer.valueOf(i), q.get(i));
+                assertEquals(Integer.valueOf(999 - i), r.get(i));
+            }
+            q.clear();
+            while(!r.isEmpty())
+                r.pollLast();
+            assertTrue(pool.size() <= pool.maxChunks());
+        }
+        assertTrue(pool.size() > 0);
+
+        // sublists a snapshot still reads are not recycled
+        for(int i = 0; i < 1000; i++)
+            q.add(i);
+        QuickLinkedList<Integer> snap = q.snapshot();
+        q.set(0, -1);
+        q.clear();
+        for(int i = 0; i < 1000; i++)
+            q.add(-i);
+        q.optimize(50);
+        q.sort(null);
+        q.removeIf(x -> x % 2 == 0);
+        for(int i = 0; i < 1000; i++)
+            assertEquals(Integer.valueOf(i), snap.get(i));
+
+        // sublists moved to another list are not recycled
+        r.addAll(snap);
+        QuickLinkedList<Integer> tail = r.splitAt(500);
+        r.clear();
+        for(int i = 0; i < 500; i++)
+            assertEquals(Integer.valueOf(500 + i), tail.get(i));
+        q.append(tail);
+        for(int i = 0; i < 500; i++)
+            assertEquals(Integer.valueOf(500 + i), q.get(q.size() - 500 + i));
+
+        // sublists merged into a neighbour keep their elements counted
+        QuickLinkedList<Integer> m = new QuickLinkedList<Integer>(16);
+        m.setChunkPool(pool);
+        ArrayList<Integer> expected = new ArrayList<Integer>();
+        for(int i = 0; i < 64; i++){
+            m.add(i);
+            expected.add(i);
+        }
+        QuickLinkedList<Integer> small = new QuickLinkedList<Integer>(16);
+        small.add(-1);
+        small.add(-2);
+        m.append(small);
+        expected.add(-1);
+        expected.add(-2);
+        for(int i = 0; i < 14; i++){
+            m.remove(17);
+            expected.remove(17);
+        }
+        assertEquals(expected.size(), m.size());
+        assertEquals(expected, m);
+        for(int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i), m.get(i));
+
+        // a sublist cut off by a bulk insert and merged into a neighbour
+        // goes back to the pool
+        pool.clear();
+        QuickLinkedList<Integer> b = new QuickLinkedList<Integer>(16);
+        b.setChunkPool(pool);
+        for(int i = 0; i < 10; i++)
+            b.add(i);
+        b.addAll(5, Arrays.asList(-1, -2));
+        assertEquals(1, pool.size());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, -1, -2, 5, 6, 7, 8, 9), b);
+
+        // lists with small sublists are not handed the large ones of others
+        pool.clear();
+        QuickLinkedList<Integer> big = new QuickLinkedList<Integer>(1000);
+        big.setChunkPool(pool);
+        for(int i = 0; i < 5000; i++)
+            big.add(i);
+        big.clear();
+        assertTrue(pool.size() > 0);
+        QuickLinkedList<Integer> little = new QuickLinkedList<Integer>(10);
+        little.setChunkPool(pool);
+        for(int i = 0; i < 100; i++)
+            little.add(i);
+        for(int k = 0; k < little.chunkCount(); k++)
+            assertTrue(((RingList<Integer>)little.chunk(k)).capacity() <= 22);
+
+        pool.clear();
+        assertEquals(0, pool.size());
+    }
+
+
     // test optimize method
     public void testOptimize(){
         for(int i = 0; i < 10000; i++){
@@ -0,0 +1,213 @@
+/**
+ * ListStats reports how the sublists of a QuickLinkedList are shaped and
+ * counts the operations done on it, so that a fragmented list can be
+ * spotted, and optimized, before it shows up as latency.
+ *
+ * The shape (number of sublists, smallest, largest, mean and percentile
+ * sizes) is worked out from the list whenever it is asked for. The
+ * operation counters are only kept when the JVM is started with
+ * -Dquicklist.stats=true; ENABLED is a constant, so with the property unset
+ * the JIT removes the counting from the list altogether and the counters
+ * stay at zero.
+ *
+ * The counters are plain fields updated by the thread changing the list.
+ * Values read from another thread, for instance through JMX, may be
+ * slightly out of date but are good enough to watch for trends.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class ListStats implements ListStatsMXBean {
+
+    // whether the lists count their operations
+    static final boolean ENABLED = Boolean.getBoolean("quicklist.stats");
+
+    // list described by these stats
+    private final QuickLinkedList<?> list;
+
+    // gets: positional gets
+    // inserts: positional inserts
+    // splits, merges: sublists split in two or merged into a neighbour
+    private long gets, inserts, splits, merges;
+
+    // lookups by number of levels of the sublist index walked
+    private final long[] levels = new long[Integer.SIZE + 1];
+
+    // name this is registered under, null if not registered
+    private ObjectName name;
+
+
+    ListStats(QuickLinkedList<?> list) {
+        this.list = list;
+    }
+
+
+    /**
+     * Count a positional lookup that walked the given number of levels of
+     * the sublist index, 0 if it was answered without searching
+     */
+    void lookup(int walked) {
+        levels[walked]++;
+    }
+
+
+    void get() {
+        gets++;
+    }
+
+
+    void insert() {
+        inserts++;
+    }
+
+
+    void split() {
+        splits++;
+    }
+
+
+    void merge() {
+        merges++;
+    }
+
+
+    public int getSize() {
+        return list.size();
+    }
+
+
+    public int getFragment() {
+        return list.getSublistSize();
+    }
+
+
+    public int getChunkCount() {
+        return list.chunkSizes().length;
+    }
+
+
+    public int getMinChunkSize() {
+        return percentile(0);
+    }
+
+
+    public int getMaxChunkSize() {
+        return percentile(100);
+    }
+
+
+    public double getMeanChunkSize() {
+        int[] sizes = list.chunkSizes();
+        long total = 0;
+        for (int n : sizes)
+            total += n;
+        return sizes.length == 0 ? 0 : (double)total / sizes.length;
+    }
+
+
+    public int getMedianChunkSize() {
+        return percentile(50);
+    }
+
+
+    public int getP90ChunkSize() {
+        return percentile(90);
+    }
+
+
+    public int getP99ChunkSize() {
+        return percentile(99);
+    }
+
+
+    public double getMeanFill() {
+        return getMeanChunkSize() / Math.max(list.getSublistSize(), 1);
+    }
+
+
+    public boolean isCounting() {
+        return ENABLED;
+    }
+
+
+    public long getGets() {
+        return gets;
+    }
+
+
+    public long getInserts() {
+        return inserts;
+    }
+
+
+    public long getSplits() {
+        return splits;
+    }
+
+
+    public long getMerges() {
+        return merges;
+    }
+
+
+    public long[] getLookupLevels() {
+        int n = levels.length;
+        while (n > 0 && levels[n - 1] == 0)
+            n--;
+        return Arrays.copyOf(levels, n);
+    }
+
+
+    public void reset() {
+        gets = inserts = splits = merges = 0;
+        Arrays.fill(levels, 0);
+    }
+
+
+    /**
+     * Register these stats with the platform MBean server, under
+     * QuickLinkedList:type=ListStats,name=&lt;name&gt;. The server keeps the
+     * list reachable until unregister is called.
+     * @param name name telling this list apart from the others.
+     * @return the name the stats are registered under.
+     * @throws JMException if the name is taken or cannot be registered.
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        if (this.name != null)
+            throw new IllegalStateException("already registered as " + this.name);
+        ObjectName objectName = new ObjectName("QuickLinkedList:type=ListStats,name="
+                                               + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.name = objectName;
+        return objectName;
+    }
+
+
+    /**
+     * Remove these stats from the platform MBean server, if registered.
+     * @throws JMException if the server fails to remove them.
+     */
+    public synchronized void unregister() throws JMException {
+        if (name == null)
+            return;
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        name = null;
+    }
+
+
+    // sublist size the given percentage of sublists are at or below
+    private int percentile(int p) {
+        int[] sizes = list.chunkSizes();
+        if (sizes.length == 0)
+            return 0;
+        Arrays.sort(sizes);
+        return sizes[(int)((long)(sizes.length - 1) * p / 100)];
+    }
+
+//End
+}
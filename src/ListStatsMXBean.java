@@ -0,0 +1,117 @@
+/**
+ * Management interface of ListStats, the attributes a QuickLinkedList
+ * exposes through JMX once its stats are registered.
+ *
+ * @author Kefei D. Zhou
+ */
+
+public interface ListStatsMXBean {
+
+    /**
+     * Return the number of elements in the list
+     */
+    int getSize();
+
+
+    /**
+     * Return the fragment size the sublists are kept at
+     */
+    int getFragment();
+
+
+    /**
+     * Return the number of sublists
+     */
+    int getChunkCount();
+
+
+    /**
+     * Return the number of elements in the smallest sublist
+     */
+    int getMinChunkSize();
+
+
+    /**
+     * Return the number of elements in the largest sublist
+     */
+    int getMaxChunkSize();
+
+
+    /**
+     * Return the average number of elements per sublist
+     */
+    double getMeanChunkSize();
+
+
+    /**
+     * Return the median number of elements per sublist
+     */
+    int getMedianChunkSize();
+
+
+    /**
+     * Return the sublist size 90% of the sublists are at or below
+     */
+    int getP90ChunkSize();
+
+
+    /**
+     * Return the sublist size 99% of the sublists are at or below
+     */
+    int getP99ChunkSize();
+
+
+    /**
+     * Return the average sublist size as a fraction of the fragment size.
+     * Well below 1 means the list is fragmented and optimize would help.
+     */
+    double getMeanFill();
+
+
+    /**
+     * Tests if the operation counters are kept, that is if the JVM was
+     * started with -Dquicklist.stats=true
+     */
+    boolean isCounting();
+
+
+    /**
+     * Return the number of positional gets
+     */
+    long getGets();
+
+
+    /**
+     * Return the number of positional inserts
+     */
+    long getInserts();
+
+
+    /**
+     * Return the number of sublists split in two
+     */
+    long getSplits();
+
+
+    /**
+     * Return the number of sublists merged into a neighbour
+     */
+    long getMerges();
+
+
+    /**
+     * Return a histogram of the levels of the sublist index walked by
+     * each positional lookup: entry i counts the lookups that walked i
+     * levels. Entry 0 counts the lookups answered from the sublist last
+     * looked up, or one next to it, without searching.
+     */
+    long[] getLookupLevels();
+
+
+    /**
+     * Set all the operation counters back to zero
+     */
+    void reset();
+
+//End
+}
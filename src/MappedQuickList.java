@@ -0,0 +1,564 @@
+/**
+ * MappedQuickList is a QuickLinkedList kept in a file written by
+ * QuickListFile, for opening large saved lists without reading them first.
+ *
+ * Opening a file reads only its header and chunk directory. Every chunk of
+ * the file becomes a sublist that is decoded from a memory mapped region of
+ * the file the first time get, set, an iterator or a change touches it, and
+ * stays in memory from then on. The file is mapped in windows of a gigabyte,
+ * each shared by all the chunks inside it, so a file of millions of chunks
+ * needs only a few mappings. Sublists are split and merged the same way as
+ * in QuickLinkedList.
+ *
+ * Changes are kept in memory until flush(), which writes every changed
+ * sublist back to its chunk and then rewrites the directory and header. A
+ * sublist that no longer fits its chunk, or is new, is written to a new
+ * chunk at the end of the file with room for twice the fragment size. The
+ * space of chunks left behind is not reused; write the list to a new file
+ * with QuickListFile to compact it.
+ *
+ * flush() is not atomic. Chunks and the directory are overwritten in place,
+ * so a crash in the middle of a flush can leave the file with some chunks
+ * or the directory out of step with the rest. To save a list safely, write
+ * it to a new file with QuickListFile and rename that over the old one.
+ *
+ * Like QuickLinkedList, this list is not synchronized.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class MappedQuickList<E> extends AbstractList<E>
+    implements Closeable, Collection<E>, List<E>, Iterable<E> {
+
+
+    /**
+     * A sublist and the chunk of the file it came from
+     */
+    private static final class Segment<E> {
+
+        // elements, null until loaded from the file
+        ArrayList<E> elements;
+
+        // offset: file offset of the chunk, -1 if it has none yet
+        // capacity: elements the chunk has room for
+        long offset = -1;
+        int capacity;
+
+        // changed since loaded or last flushed
+        boolean dirty;
+    }
+
+    // sublists in order
+    private ArrayList<Segment<E>> list;
+
+    // sizes of the sublists, known before they are loaded
+    private ChunkIndex index;
+
+    // directory of the file as last written
+    private QuickListFile.Directory dir;
+
+    // chunks the directory has room for in place
+    private int room;
+
+    // end of the used part of the file
+    private long end;
+
+    private final FileChannel channel;
+    private final Codec<E> codec;
+
+    // size: track the size of the entire list
+    // fragment: size of each sublist
+    // width: bytes per element
+    private int size, fragment, width;
+
+    // modCount as of the last flush
+    private int flushedModCount;
+
+    // mapped windows of the file by number, see region
+    private final HashMap<Long, ByteBuffer> windows = new HashMap<Long, ByteBuffer>();
+
+    // bytes of the file mapped per window
+    private static final long WINDOW = 1L << 30;
+
+
+    /**
+     * Open a list saved by QuickListFile. Only the header and directory of
+     * the file are read.
+     * @param codec codec the file was written with
+     * @param file file to open
+     * @throws IOException if the file cannot be opened or is not a list of
+     *         elements of the codec's width
+     */
+    public MappedQuickList(Codec<E> codec, Path file) throws IOException {
+        this(codec, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+
+    /**
+     * Create an empty list with the specific sublist size in the given
+     * file. Any existing content of the file is discarded.
+     * @param codec codec for the elements
+     * @param fragment size of each sublist
+     * @param file file to keep the list in
+     * @throws IOException if the file cannot be created
+     */
+    public MappedQuickList(Codec<E> codec, int fragment, Path file) throws IOException {
+        this(codec, create(codec, fragment, file));
+    }
+
+
+    private MappedQuickList(Codec<E> codec, FileChannel channel) throws IOException {
+        if (codec == null)
+            throw new NullPointerException();
+        this.codec = codec;
+        this.channel = channel;
+        width = codec.width();
+
+        try {
+            dir = QuickListFile.Directory.read(channel, width);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        fragment = Math.max(dir.fragment, 0);
+        size = dir.size;
+        room = dir.chunks;
+
+        // chunks may have room beyond what was written to them, so the file
+        // can end inside the last one
+        end = Math.max(channel.size(), dir.directory + (long)dir.chunks * QuickListFile.ENTRY_BYTES);
+        for (int c = 0; c < dir.chunks; c++)
+            end = Math.max(end, dir.offsets[c] + (long)dir.capacities[c] * width);
+
+        list = new ArrayList<Segment<E>>(dir.chunks + 1);
+        index = new ChunkIndex();
+        for (int c = 0; c < dir.chunks; c++) {
+            Segment<E> s = new Segment<E>();
+            s.offset = dir.offsets[c];
+            s.capacity = dir.capacities[c];
+            list.add(s);
+        }
+        index.insert(0, dir.counts, dir.chunks);
+        if (list.isEmpty())
+            addChunk(newSegment());
+    }
+
+
+    private static FileChannel create(Codec<?> codec, int fragment, Path file) throws IOException {
+        if (fragment < 0)
+            throw new IllegalArgumentException();
+        int width = codec.width();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            QuickListFile.Directory.contiguous(width, fragment, 0)
+                .write(channel, QuickListFile.HEADER_BYTES);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+
+    /**
+     * Returns the number of elements in this list.
+     * @return the number of elements in this list.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Return the size of sublists
+     * @return size of the sublists
+     */
+    public int getSublistSize(){
+        return fragment;
+    }
+
+
+    /**
+     * Returns the element at the specified position in this list, loading
+     * its sublist if needed.
+     * @param index index of element to return.
+     * @return the element at the specified position in this list.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+     */
+    public E get(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        return load(ChunkIndex.chunk(pos)).get(ChunkIndex.offset(pos));
+    }
+
+
+    /**
+     * Replaces the element at the specified position in this list with the specified element.
+     * @param index index of element to replace.
+     * @param element element to be stored at the specified position.
+     * @return the element previously at the specified position.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size()).
+     */
+    public E set(int index, E element) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        int k = ChunkIndex.chunk(pos);
+        E current = load(k).set(ChunkIndex.offset(pos), element);
+        list.get(k).dirty = true;
+        return current;
+    }
+
+
+    /**
+     * Appends the specified element to the end of this list.
+     * @param o element to be appended to this list.
+     * @return true (as per the general contract of Collection.add).
+     */
+    public boolean add(E o) {
+        int last = list.size() - 1;
+        if (index.size(last) < fragment) {
+            load(last).add(o);
+            list.get(last).dirty = true;
+            index.update(last, 1);
+        }
+        else {
+            Segment<E> s = newSegment();
+            s.elements.add(o);
+            addChunk(s);
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+
+    /**
+    * Inserts the specified element at the specified position in this list.
+    * Shifts the element currently at that position (if any) and any subsequent
+    * elements to the right (adds one to their indices).
+    * @param index index at which the specified element is to be inserted.
+    * @param o element to be inserted.
+    * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+    */
+    public void add(int index, E o) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        if (index == size) {
+            add(o);
+            return;
+        }
+
+        long pos = this.index.locate(index);
+        int k = ChunkIndex.chunk(pos);
+        load(k).add(ChunkIndex.offset(pos), o);
+        list.get(k).dirty = true;
+        this.index.update(k, 1);
+        size++;
+        modCount++;
+        rebalance(k);
+    }
+
+
+    /**
+     * Removes the element at the specified position in this list. Shifts any
+     * subsequent elements to the left (subtracts one from their indices).
+     * @param index the index of the element to removed.
+     * @return the element that was removed from the list.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size())
+     */
+    public E remove(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        int k = ChunkIndex.chunk(pos);
+        E removed = load(k).remove(ChunkIndex.offset(pos));
+        list.get(k).dirty = true;
+        this.index.update(k, -1);
+        size--;
+        modCount++;
+        rebalance(k);
+        return removed;
+    }
+
+
+    /**
+     * Removes all of the elements from this list. The file keeps the old
+     * chunks until the next flush.
+     *
+     */
+    public void clear() {
+        size = 0;
+        modCount++;
+        list.clear();
+        index.clear();
+        addChunk(newSegment());
+    }
+
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     * The iterator loads one sublist at a time as it reaches it.
+     * @return an iterator over the elements in this list in proper sequence.
+     */
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            // cursor: index of the next element
+            // chunk, offset: position of cursor
+            private int cursor, chunk, offset;
+            private boolean canRemove;
+            private int expectedModCount = modCount;
+
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            public E next() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if (cursor >= size)
+                    throw new NoSuchElementException();
+
+                while (offset >= index.size(chunk)) {
+                    chunk++;
+                    offset = 0;
+                }
+                cursor++;
+                canRemove = true;
+                return load(chunk).get(offset++);
+            }
+
+            public void remove() {
+                if (!canRemove)
+                    throw new IllegalStateException();
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+
+                MappedQuickList.this.remove(--cursor);
+                canRemove = false;
+                expectedModCount = modCount;
+                if (cursor < size) {
+                    long pos = index.locate(cursor);
+                    chunk = ChunkIndex.chunk(pos);
+                    offset = ChunkIndex.offset(pos);
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Write all changes out to the file: every changed sublist to its
+     * chunk, or to a new chunk at the end of the file if it does not fit,
+     * then the directory and the header. This is not atomic, see the class
+     * description.
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        boolean changed = modCount != flushedModCount;
+        ByteBuffer buf = null;
+        for (int k = 0; k < list.size(); k++) {
+            Segment<E> s = list.get(k);
+            if (!s.dirty)
+                continue;
+
+            int n = index.size(k);
+            if (s.offset < 0 || n > s.capacity) {
+                s.capacity = Math.max(n, Math.max(2 * fragment, 1));
+                s.offset = end;
+                end += (long)s.capacity * width;
+                changed = true;
+            }
+            if (buf == null || buf.capacity() < n * width)
+                buf = QuickListFile.allocate(Math.max(n, Math.max(2 * fragment, 1)) * width);
+            buf.clear();
+            for (int i = 0; i < n; i++)
+                codec.write(buf, i * width, s.elements.get(i));
+            buf.limit(n * width);
+            QuickListFile.writeFully(channel, buf, s.offset);
+            s.dirty = false;
+        }
+        if (!changed)
+            return;
+
+        QuickListFile.Directory next = new QuickListFile.Directory(width, fragment, list.size());
+        next.size = size;
+        for (int k = 0; k < list.size(); k++) {
+            next.offsets[k] = list.get(k).offset;
+            next.counts[k] = index.size(k);
+            next.capacities[k] = list.get(k).capacity;
+        }
+
+        long at = dir.directory;
+        if (list.size() > room) {
+            at = end;
+            room = list.size() * 2;
+            end += (long)room * QuickListFile.ENTRY_BYTES;
+        }
+        next.write(channel, at);
+        channel.force(false);
+        dir = next;
+        flushedModCount = modCount;
+    }
+
+
+    /**
+     * Flush and close the file. The list must not be used afterwards.
+     * @throws IOException if the file cannot be written or closed
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * Return the elements of sublist k, decoding them from the file the
+     * first time
+     */
+    private ArrayList<E> load(int k) {
+        Segment<E> s = list.get(k);
+        if (s.elements != null)
+            return s.elements;
+
+        int n = index.size(k);
+        ArrayList<E> elements = new ArrayList<E>(Math.max(n, (int)(fragment * 1.1)));
+        if (n > 0) {
+            try {
+                ByteBuffer buf = region(s.offset, n * width);
+                for (int i = 0; i < n; i++)
+                    elements.add(codec.read(buf, i * width));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        s.elements = elements;
+        return elements;
+    }
+
+
+    /**
+     * Return the given bytes of the file, sliced from the mapped window
+     * holding them. The window is mapped on first use, and again if the
+     * file has grown past its end since. Bytes that straddle two windows
+     * are read into a buffer of their own.
+     */
+    private ByteBuffer region(long offset, int bytes) throws IOException {
+        long w = offset / WINDOW, start = w * WINDOW;
+        if (offset + bytes > start + WINDOW)
+            return QuickListFile.readFully(channel, QuickListFile.allocate(bytes), offset);
+
+        ByteBuffer window = windows.get(w);
+        if (window == null || window.capacity() < offset + bytes - start) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                 Math.min(WINDOW, channel.size() - start));
+            windows.put(w, window);
+        }
+        ByteBuffer region = window.duplicate();
+        region.position((int)(offset - start));
+        region.limit((int)(offset - start) + bytes);
+        return region.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    /**
+     * Keep the given sublist between the low and high water marks, the same
+     * way QuickLinkedList does.
+     *
+     * @param k sublist that was just changed
+     */
+    private void rebalance(int k) {
+        int n = index.size(k);
+        if (n > Math.max(2 * fragment, 1))
+            split(k);
+        else if ((n < fragment / 4 || n == 0) && list.size() > 1)
+            merge(k);
+    }
+
+
+    /**
+     * Move the upper half of the given sublist into a new sublist right after it
+     */
+    private void split(int k) {
+        ArrayList<E> array = load(k);
+        List<E> upper = array.subList(array.size() / 2, array.size());
+        Segment<E> next = newSegment();
+        next.elements.addAll(upper);
+        upper.clear();
+        list.get(k).dirty = true;
+
+        list.add(k + 1, next);
+        index.update(k, -next.elements.size());
+        index.insert(k + 1, next.elements.size());
+    }
+
+
+    /**
+     * Merge the given sublist into its smaller neighbour, dropping it if it
+     * is empty. The merged sublist is split again if it ends up too large.
+     */
+    private void merge(int k) {
+        if (index.size(k) == 0) {
+            list.remove(k);
+            index.remove(k);
+            return;
+        }
+
+        int left = k;
+        if (k == list.size() - 1 || (k > 0 && index.size(k - 1) < index.size(k + 1)))
+            left = k - 1;
+
+        ArrayList<E> array = load(left);
+        array.addAll(load(left + 1));
+        list.get(left).dirty = true;
+        index.update(left, index.size(left + 1));
+        list.remove(left + 1);
+        index.remove(left + 1);
+
+        if (index.size(left) > Math.max(2 * fragment, 1))
+            split(left);
+    }
+
+
+    /**
+     * Create an empty, loaded sublist with no chunk in the file yet
+     */
+    private Segment<E> newSegment() {
+        Segment<E> s = new Segment<E>();
+        s.elements = new ArrayList<E>((int)(fragment * 1.1));
+        s.dirty = true;
+        return s;
+    }
+
+
+    /**
+     * Append a loaded sublist to the end of the list of sublists
+     */
+    private void addChunk(Segment<E> s) {
+        list.add(s);
+        index.add(s.elements.size());
+    }
+
+
+//End
+}
@@ -0,0 +1,446 @@
+/**
+ * OffHeapQuickList is a QuickLinkedList whose sublists live outside the Java
+ * heap. Every sublist is a fixed region of a direct ByteBuffer, or of a memory
+ * mapped file, and elements are stored in it through a fixed-width Codec, so
+ * the list holds no per-element objects for the garbage collector to trace.
+ *
+ * Sublists are split and merged the same way as in QuickLinkedList. Each
+ * region is sized for the split limit of twice the fragment size, so a
+ * sublist never has to be moved to grow. Regions of dropped sublists are
+ * reused by later splits.
+ *
+ * When a file is given, regions are mapped from that file and the operating
+ * system pages them in and out, so the list can be larger than memory. The
+ * file is scratch space only; it is not a saved copy of the list.
+ *
+ * Like QuickLinkedList, this list is not synchronized.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class OffHeapQuickList<E> extends AbstractList<E>
+    implements Closeable, Collection<E>, List<E>, Iterable<E> {
+
+
+    // largest slab of regions allocated or mapped at once
+    private static final int SLAB_BYTES = 1 << 24;
+
+    // sublists, each one a region of a slab
+    private ArrayList<ByteBuffer> list;
+
+    // sizes of the sublists
+    private ChunkIndex index;
+
+    // regions of dropped sublists, ready for reuse
+    private ArrayDeque<ByteBuffer> free;
+
+    // slabs allocated so far
+    private ArrayList<ByteBuffer> slabs;
+
+    // file backing the slabs, null for direct buffers
+    private FileChannel channel;
+
+    // regions: number of regions in all slabs
+    // mapped: bytes of the file mapped so far
+    private int regions;
+    private long mapped;
+
+    private final Codec<E> codec;
+
+    // size: track the size of the entire list
+    // fragment: size of each sublist
+    // width: bytes per element
+    // capacity: elements per region
+    private int size, fragment, width, capacity;
+
+    // scratch space for moving bytes inside a region
+    private byte[] scratch;
+
+
+    /**
+     * Construct an empty list with the default sublist size of 1000,
+     * stored in direct buffers
+     * @param codec codec for the elements
+     */
+    public OffHeapQuickList(Codec<E> codec) {
+        this(codec, 1000);
+    }
+
+
+    /**
+     * Construct an empty list with the specific sublist size, stored in
+     * direct buffers
+     * @param codec codec for the elements
+     * @param fragment size of each sublist
+     */
+    public OffHeapQuickList(Codec<E> codec, int fragment) {
+        this(codec, fragment, (FileChannel)null);
+    }
+
+
+    /**
+     * Construct an empty list with the specific sublist size, stored in
+     * regions mapped from the given file. Any existing content of the
+     * file is discarded.
+     * @param codec codec for the elements
+     * @param fragment size of each sublist
+     * @param file file to map the sublists from
+     * @throws IOException if the file cannot be opened
+     */
+    public OffHeapQuickList(Codec<E> codec, int fragment, Path file) throws IOException {
+        this(codec, fragment, open(codec, fragment, file));
+    }
+
+
+    private OffHeapQuickList(Codec<E> codec, int fragment, FileChannel channel) {
+        if (codec == null)
+            throw new NullPointerException();
+        if (fragment < 0)
+            throw new IllegalArgumentException();
+
+        this.codec = codec;
+        this.channel = channel;
+        this.fragment = fragment;
+        width = codec.width();
+        capacity = Math.max(2 * fragment, 1) + 1;
+        scratch = new byte[capacity * width];
+        list = new ArrayList<ByteBuffer>();
+        index = new ChunkIndex();
+        free = new ArrayDeque<ByteBuffer>();
+        slabs = new ArrayList<ByteBuffer>();
+        try {
+            addChunk(newChunk(), 0);
+        } catch (RuntimeException e) {
+            try {
+                if (channel != null)
+                    channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+
+    // check the arguments before the file is opened, so it is not left open
+    private static FileChannel open(Codec<?> codec, int fragment, Path file) throws IOException {
+        if (codec == null)
+            throw new NullPointerException();
+        if (fragment < 0)
+            throw new IllegalArgumentException();
+        return FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+
+    /**
+     * Returns the number of elements in this list.
+     * @return the number of elements in this list.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Return the size of sublists
+     * @return size of the sublists
+     */
+    public int getSublistSize(){
+        return fragment;
+    }
+
+
+    /**
+     * Returns the element at the specified position in this list.
+     * @param index index of element to return.
+     * @return the element at the specified position in this list.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+     */
+    public E get(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        return codec.read(list.get(ChunkIndex.chunk(pos)), ChunkIndex.offset(pos) * width);
+    }
+
+
+    /**
+     * Replaces the element at the specified position in this list with the specified element.
+     * @param index index of element to replace.
+     * @param element element to be stored at the specified position.
+     * @return the element previously at the specified position.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size()).
+     */
+    public E set(int index, E element) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        ByteBuffer buf = list.get(ChunkIndex.chunk(pos));
+        E current = codec.read(buf, ChunkIndex.offset(pos) * width);
+        codec.write(buf, ChunkIndex.offset(pos) * width, element);
+        return current;
+    }
+
+
+    /**
+     * Appends the specified element to the end of this list.
+     * @param o element to be appended to this list.
+     * @return true (as per the general contract of Collection.add).
+     */
+    public boolean add(E o) {
+        int last = list.size() - 1;
+        int n = index.size(last);
+        if (n < fragment) {
+            codec.write(list.get(last), n * width, o);
+            index.update(last, 1);
+        }
+        else {
+            ByteBuffer buf = newChunk();
+            codec.write(buf, 0, o);
+            addChunk(buf, 1);
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+
+    /**
+    * Inserts the specified element at the specified position in this list.
+    * Shifts the element currently at that position (if any) and any subsequent
+    * elements to the right (adds one to their indices).
+    * @param index index at which the specified element is to be inserted.
+    * @param o element to be inserted.
+    * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+    */
+    public void add(int index, E o) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        if (index == size) {
+            add(o);
+            return;
+        }
+
+        long pos = this.index.locate(index);
+        int k = ChunkIndex.chunk(pos), offset = ChunkIndex.offset(pos);
+        ByteBuffer buf = list.get(k);
+        move(buf, offset, buf, offset + 1, this.index.size(k) - offset);
+        codec.write(buf, offset * width, o);
+        this.index.update(k, 1);
+        size++;
+        modCount++;
+        rebalance(k);
+    }
+
+
+    /**
+     * Removes the element at the specified position in this list. Shifts any
+     * subsequent elements to the left (subtracts one from their indices).
+     * @param index the index of the element to removed.
+     * @return the element that was removed from the list.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size())
+     */
+    public E remove(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        int k = ChunkIndex.chunk(pos), offset = ChunkIndex.offset(pos);
+        ByteBuffer buf = list.get(k);
+        E removed = codec.read(buf, offset * width);
+        move(buf, offset + 1, buf, offset, this.index.size(k) - offset - 1);
+        this.index.update(k, -1);
+        size--;
+        modCount++;
+        rebalance(k);
+        return removed;
+    }
+
+
+    /**
+     * Removes all of the elements from this list. The regions are kept
+     * for reuse.
+     *
+     */
+    public void clear() {
+        size = 0;
+        modCount++;
+        free.addAll(list);
+        list.clear();
+        index.clear();
+        addChunk(newChunk(), 0);
+    }
+
+
+    /**
+     * Write any changes of a file backed list out to the file.
+     * Does nothing for a list stored in direct buffers.
+     */
+    public void flush() {
+        if (channel == null)
+            return;
+        for (ByteBuffer slab : slabs)
+            ((MappedByteBuffer)slab).force();
+    }
+
+
+    /**
+     * Flush and close the backing file, if any. The list must not be
+     * used afterwards.
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        flush();
+        if (channel != null)
+            channel.close();
+    }
+
+
+    /**
+     * Keep the given sublist between the low and high water marks, the same
+     * way QuickLinkedList does.
+     *
+     * @param k sublist that was just changed
+     */
+    private void rebalance(int k) {
+        int n = index.size(k);
+        if (n > Math.max(2 * fragment, 1))
+            split(k);
+        else if ((n < fragment / 4 || n == 0) && list.size() > 1)
+            merge(k);
+    }
+
+
+    /**
+     * Move the upper half of the given sublist into a new sublist right after it
+     */
+    private void split(int k) {
+        int n = index.size(k), half = n / 2;
+        ByteBuffer next = newChunk();
+        move(list.get(k), half, next, 0, n - half);
+
+        list.add(k + 1, next);
+        index.update(k, half - n);
+        index.insert(k + 1, n - half);
+    }
+
+
+    /**
+     * Merge the given sublist into its smaller neighbour, dropping it if it
+     * is empty. The merged sublist is split again if it ends up too large.
+     */
+    private void merge(int k) {
+        if (index.size(k) == 0) {
+            free.add(list.remove(k));
+            index.remove(k);
+            return;
+        }
+
+        int left = k;
+        if (k == list.size() - 1 || (k > 0 && index.size(k - 1) < index.size(k + 1)))
+            left = k - 1;
+
+        int n = index.size(left), m = index.size(left + 1);
+        if (n + m > capacity) {
+            // too much for one region, even the two out instead
+            ByteBuffer l = list.get(left), r = list.get(left + 1);
+            int half = (n + m) / 2;
+            if (n < half) {
+                move(r, 0, l, n, half - n);
+                move(r, half - n, r, 0, m - (half - n));
+            }
+            else {
+                move(r, 0, r, n - half, m);
+                move(l, half, r, 0, n - half);
+            }
+            index.update(left, half - n);
+            index.update(left + 1, n - half);
+            return;
+        }
+
+        ByteBuffer right = list.remove(left + 1);
+        move(right, 0, list.get(left), n, m);
+        free.add(right);
+        index.update(left, m);
+        index.remove(left + 1);
+
+        if (n + m > Math.max(2 * fragment, 1))
+            split(left);
+    }
+
+
+    /**
+     * Copy count elements from one region to another. The regions may be the
+     * same and the ranges may overlap.
+     */
+    private void move(ByteBuffer from, int src, ByteBuffer to, int dst, int count) {
+        if (count <= 0)
+            return;
+        int bytes = count * width;
+        ByteBuffer in = from.duplicate();
+        in.position(src * width);
+        in.get(scratch, 0, bytes);
+        ByteBuffer out = to.duplicate();
+        out.position(dst * width);
+        out.put(scratch, 0, bytes);
+    }
+
+
+    /**
+     * Take a free region, allocating or mapping a new slab if none is left
+     */
+    private ByteBuffer newChunk() {
+        if (free.isEmpty()) {
+            // slabs double in size up to SLAB_BYTES
+            int bytes = capacity * width;
+            int n = Math.max(1, Math.min(regions, SLAB_BYTES / bytes));
+            ByteBuffer slab;
+            if (channel == null)
+                slab = ByteBuffer.allocateDirect(n * bytes);
+            else {
+                try {
+                    slab = channel.map(FileChannel.MapMode.READ_WRITE, mapped, (long)n * bytes);
+                    mapped += (long)n * bytes;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            slabs.add(slab);
+            regions += n;
+            for (int i = 0; i < n; i++) {
+                ByteBuffer region = slab.duplicate();
+                region.position(i * bytes);
+                region.limit((i + 1) * bytes);
+                free.add(region.slice().order(ByteOrder.nativeOrder()));
+            }
+        }
+        return free.poll();
+    }
+
+
+    /**
+     * Append a sublist holding n elements to the end of the list of sublists
+     */
+    private void addChunk(ByteBuffer buf, int n) {
+        list.add(buf);
+        index.add(n);
+    }
+
+
+//End
+}
@@ -0,0 +1,413 @@
+/**
+ * PrimitiveQuickList is what QuickIntList, QuickLongList and QuickDoubleList
+ * have in common: fragment sized sublists, each a primitive array of type
+ * A, found through a ChunkIndex and split, merged and optimized the same way
+ * as in QuickLinkedList. A subclass adds the unboxed accessors of its value
+ * type, which read and write the arrays directly, and the List methods that
+ * box them.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.*;
+
+abstract class PrimitiveQuickList<E, A> extends AbstractList<E>
+    implements Serializable, Cloneable {
+
+
+    // fragment arrays to store the "list"
+    transient ArrayList<A> list;
+
+    // sizes of the fragment arrays, used to find the array holding an index
+    transient ChunkIndex index;
+
+    // size: track the size of the entire list
+    // fragment: size of each sublist
+    int size, fragment;
+
+    // serial version number
+    private static final long serialVersionUID = 42L;
+
+
+    /**
+     * Construct an empty list with the specific sublist size
+     * @throws IllegalArgumentException if fragment is negative.
+     */
+    PrimitiveQuickList(int fragment) {
+        if(fragment < 0)
+            throw new IllegalArgumentException();
+        size = 0;
+        this.fragment = fragment;
+        list = new ArrayList<A>();
+        index = new ChunkIndex();
+        addChunk(newChunk(), 0);
+    }
+
+
+    /**
+     * Create an array of the value type
+     */
+    abstract A newArray(int length);
+
+
+    /**
+     * Write values [0, n) of the array to the stream
+     */
+    abstract void writeValues(ObjectOutputStream s, A array, int n) throws IOException;
+
+
+    /**
+     * Read n values from the stream into [0, n) of the array
+     */
+    abstract void readValues(ObjectInputStream s, A array, int n) throws IOException;
+
+
+    /**
+     * Returns the number of elements in this list.
+     * @return the number of elements in this list.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Return the size of sublists
+     * @return size of the sublists
+     */
+    public int getSublistSize(){
+        return fragment;
+    }
+
+
+    /**
+     * Tests if this list has no elements.
+     * @return true if this list has no elements; false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+
+    /**
+     * Removes all of the values from this list. The list will be
+     * empty after this call returns.
+     *
+     */
+    public void clear() {
+        size = 0;
+        modCount++;
+        list.clear();
+        index.clear();
+        addChunk(newChunk(), 0);
+    }
+
+
+    /**
+     * Redistribute the entire list evenly throughout. After many add/remove to
+     * index operation, the list can potentially becomes unevenly distributed and
+     * see a decrease in performance with other operations.
+     *
+     * @param fragment new sublist size
+     *
+     */
+    public void optimize(int fragment) {
+
+        if(fragment < 0)
+            throw new IllegalArgumentException();
+
+        this.fragment = fragment;
+        modCount++;
+        A values = values();
+        list.clear();
+        index.clear();
+
+        int step = Math.max(fragment, 1);
+        for (int i = 0; i < size; i += step) {
+            int n = Math.min(step, size - i);
+            A array = newChunk();
+            System.arraycopy(values, i, array, 0, n);
+            addChunk(array, n);
+        }
+        if (list.isEmpty())
+            addChunk(newChunk(), 0);
+    }
+
+
+    /**
+     * Returns a copy of this list. The sublists are copied, so the clone
+     * and this list can be changed independently.
+     * @return a clone of this list.
+     *
+     */
+    public Object clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            PrimitiveQuickList<E, A> copy = (PrimitiveQuickList<E, A>)super.clone();
+            copy.list = new ArrayList<A>(list.size());
+            for (A array : list)
+                copy.list.add(copyOf(array, Array.getLength(array)));
+            copy.index = index.copy();
+            copy.modCount = 0;
+            return copy;
+        } catch(CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+
+    /**
+     * Number of sublists, for bulk access by QuickListFile
+     */
+    int chunkCount() {
+        return list.size();
+    }
+
+
+    /**
+     * Backing array of sublist k, holding chunkSize(k) values
+     */
+    A chunk(int k) {
+        return list.get(k);
+    }
+
+
+    /**
+     * Number of values in sublist k
+     */
+    int chunkSize(int k) {
+        return index.size(k);
+    }
+
+
+    /**
+     * Append the first n values of array as a new sublist, which takes
+     * ownership of the array. n must not exceed twice the fragment size.
+     */
+    void appendChunk(A array, int n) {
+        if (n == 0)
+            return;
+        if (size == 0) {
+            list.clear();
+            index.clear();
+        }
+        addChunk(array, n);
+        size += n;
+        modCount++;
+        rebalance(list.size() - 1);
+    }
+
+
+    /**
+     * Return all of the values in order, in one array
+     */
+    A values() {
+        A values = newArray(size);
+        int base = 0;
+        for (int k = 0; k < list.size(); k++) {
+            int n = index.size(k);
+            System.arraycopy(list.get(k), 0, values, base, n);
+            base += n;
+        }
+        return values;
+    }
+
+
+    /**
+     * Make room for one more value at the end of the list
+     * @return the position of the room, as from ChunkIndex.locate
+     */
+    long append() {
+        int last = list.size() - 1, n = index.size(last);
+        size++;
+        modCount++;
+        if (n < fragment) {
+            ensureCapacity(last, n + 1);
+            index.update(last, 1);
+            return ChunkIndex.position(last, n);
+        }
+        addChunk(newChunk(), 1);
+        return ChunkIndex.position(last + 1, 0);
+    }
+
+
+    /**
+     * Make room for one more value at the given index, before the end of
+     * the list. The caller stores the value and then calls rebalance on
+     * the sublist.
+     * @return the position of the room, as from ChunkIndex.locate
+     */
+    long insert(int index) {
+        long pos = this.index.locate(index);
+        int k = ChunkIndex.chunk(pos), offset = ChunkIndex.offset(pos);
+        int n = this.index.size(k);
+        A array = ensureCapacity(k, n + 1);
+        System.arraycopy(array, offset, array, offset + 1, n - offset);
+        this.index.update(k, 1);
+        size++;
+        modCount++;
+        return pos;
+    }
+
+
+    /**
+     * Remove the value at the given position, which the caller has read
+     */
+    void delete(long pos) {
+        int k = ChunkIndex.chunk(pos), offset = ChunkIndex.offset(pos);
+        A array = list.get(k);
+        System.arraycopy(array, offset + 1, array, offset, index.size(k) - offset - 1);
+        index.update(k, -1);
+        size--;
+        modCount++;
+        rebalance(k);
+    }
+
+
+    /**
+     * Save the list to a stream: size and fragment, then the values in
+     * order as raw values, sublist by sublist.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+        for (int k = 0; k < list.size(); k++)
+            writeValues(s, list.get(k), index.size(k));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+
+    /**
+     * Rebuild the list from a stream written by writeObject, in sublists
+     * of the fragment size.
+     */
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        list = new ArrayList<A>();
+        index = new ChunkIndex();
+
+        int step = Math.max(fragment, 1);
+        for (int i = 0; i < size; i += step) {
+            int n = Math.min(step, size - i);
+            A array = newChunk();
+            readValues(s, array, n);
+            addChunk(array, n);
+        }
+        if (list.isEmpty())
+            addChunk(newChunk(), 0);
+    }
+
+
+    /**
+     * Keep the given sublist between the low and high water marks, the same
+     * way QuickLinkedList does.
+     *
+     * @param k sublist that was just changed
+     */
+    void rebalance(int k) {
+        int n = index.size(k);
+        if (n > Math.max(2 * fragment, 1))
+            split(k);
+        else if ((n < fragment / 4 || n == 0) && list.size() > 1)
+            merge(k);
+    }
+
+
+    /**
+     * Move the upper half of the given sublist into a new sublist right after it
+     */
+    private void split(int k) {
+        A array = list.get(k);
+        int n = index.size(k), half = n / 2;
+        A next = newArray(Math.max(n - half, newChunkSize()));
+        System.arraycopy(array, half, next, 0, n - half);
+
+        list.add(k + 1, next);
+        index.update(k, half - n);
+        index.insert(k + 1, n - half);
+    }
+
+
+    /**
+     * Merge the given sublist into its smaller neighbour, dropping it if it
+     * is empty. The merged sublist is split again if it ends up too large.
+     */
+    private void merge(int k) {
+        if (index.size(k) == 0) {
+            list.remove(k);
+            index.remove(k);
+            return;
+        }
+
+        int left = k;
+        if (k == list.size() - 1 || (k > 0 && index.size(k - 1) < index.size(k + 1)))
+            left = k - 1;
+
+        int n = index.size(left), m = index.size(left + 1);
+        A array = ensureCapacity(left, n + m);
+        System.arraycopy(list.remove(left + 1), 0, array, n, m);
+        index.update(left, m);
+        index.remove(left + 1);
+
+        if (n + m > Math.max(2 * fragment, 1))
+            split(left);
+    }
+
+
+    /**
+     * Grow the given sublist so it can hold at least capacity values
+     */
+    private A ensureCapacity(int k, int capacity) {
+        A array = list.get(k);
+        int length = Array.getLength(array);
+        if (length < capacity) {
+            array = copyOf(array, Math.max(capacity, length + (length >> 1)));
+            list.set(k, array);
+        }
+        return array;
+    }
+
+
+    // a copy of array with the given length, like Arrays.copyOf
+    private A copyOf(A array, int length) {
+        A copy = newArray(length);
+        System.arraycopy(array, 0, copy, 0, Math.min(length, Array.getLength(array)));
+        return copy;
+    }
+
+
+    private int newChunkSize() {
+        return Math.max((int)(fragment * 1.1), 1);
+    }
+
+
+    /**
+     * Create an empty sublist sized for the current fragment size
+     */
+    private A newChunk() {
+        return newArray(newChunkSize());
+    }
+
+
+    /**
+     * Append a sublist holding n values to the end of the list of sublists
+     */
+    private void addChunk(A array, int n) {
+        list.add(array);
+        index.add(n);
+    }
+
+
+//End
+}
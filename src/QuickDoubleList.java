@@ -0,0 +1,221 @@
+/**
+ * QuickDoubleList is the double counterpart of QuickLinkedList. It uses the same
+ * design of fragment sized sublists that are split, merged and optimized
+ * the same way, but each sublist is a plain double[] so values are stored
+ * without boxing. The sublists are kept by PrimitiveQuickList.
+ *
+ * The List<Double> methods are there for convenience and box on every call.
+ * Use getDouble, setDouble, addDouble and removeAt to work with double values directly.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+public class QuickDoubleList extends PrimitiveQuickList<Double, double[]>
+    implements Serializable, Cloneable, Collection<Double>, List<Double>, Iterable<Double> {
+
+
+    // serial version number, changed from 42 when the size and fragment
+    // moved to PrimitiveQuickList
+    public static final long serialVersionUID = 43L;
+
+
+    /**
+     * Construct an empty list with the default sublist size of 1000
+     *
+     */
+    public QuickDoubleList() {
+        this(1000);
+    }
+
+
+    /**
+     * Construct an empty list with the specific sublist size
+     *
+     */
+    public QuickDoubleList(int fragment) {
+        super(fragment);
+    }
+
+
+    /**
+     * Returns the value at the specified position in this list.
+     * @param index index of value to return.
+     * @return the value at the specified position in this list.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+     */
+    public double getDouble(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        return list.get(ChunkIndex.chunk(pos))[ChunkIndex.offset(pos)];
+    }
+
+
+    /**
+     * Replaces the value at the specified position in this list.
+     * @param index index of value to replace.
+     * @param value value to be stored at the specified position.
+     * @return the value previously at the specified position.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size()).
+     */
+    public double setDouble(int index, double value) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        double[] array = list.get(ChunkIndex.chunk(pos));
+        double current = array[ChunkIndex.offset(pos)];
+        array[ChunkIndex.offset(pos)] = value;
+        return current;
+    }
+
+
+    /**
+     * Appends the specified value to the end of this list.
+     * @param value value to be appended to this list.
+     */
+    public void addDouble(double value) {
+        long pos = append();
+        list.get(ChunkIndex.chunk(pos))[ChunkIndex.offset(pos)] = value;
+    }
+
+
+    /**
+     * Inserts the specified value at the specified position in this list.
+     * Shifts the value currently at that position (if any) and any subsequent
+     * values to the right (adds one to their indices).
+     * @param index index at which the specified value is to be inserted.
+     * @param value value to be inserted.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+     */
+    public void addDouble(int index, double value) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        if (index == size) {
+            addDouble(value);
+            return;
+        }
+
+        long pos = insert(index);
+        list.get(ChunkIndex.chunk(pos))[ChunkIndex.offset(pos)] = value;
+        rebalance(ChunkIndex.chunk(pos));
+    }
+
+
+    /**
+     * Removes the value at the specified position in this list. Shifts any
+     * subsequent values to the left (subtracts one from their indices).
+     * @param index the index of the value to removed.
+     * @return the value that was removed from the list.
+     * @throws IndexOutOfBoundsException if index out of range (index < 0 || index >= size())
+     */
+    public double removeAt(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long pos = this.index.locate(index);
+        double removed = list.get(ChunkIndex.chunk(pos))[ChunkIndex.offset(pos)];
+        delete(pos);
+        return removed;
+    }
+
+
+    /**
+     * Searches for the first occurence of the given value.
+     * @param value value to search for.
+     * @return the index of the first occurrence of the value in this list;
+     *          returns -1 if the value is not found.
+     */
+    public int indexOfDouble(double value) {
+        int base = 0;
+        for (int k = 0; k < list.size(); k++) {
+            double[] array = list.get(k);
+            int n = index.size(k);
+            for (int i = 0; i < n; i++)
+                if (Double.doubleToLongBits(array[i]) == Double.doubleToLongBits(value))
+                    return base + i;
+            base += n;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Returns true if this list contains the specified value.
+     * @param value value whose presence in this list is to be tested.
+     * @return true if the specified value is present; false otherwise.
+     */
+    public boolean containsDouble(double value) {
+        return indexOfDouble(value) != -1;
+    }
+
+
+    /**
+     * Returns an array containing all of the values in this list in the correct order.
+     * @return an array containing all of the values in this list in the correct order.
+     */
+    public double[] toDoubleArray() {
+        return values();
+    }
+
+
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+
+    public Double set(int index, Double element) {
+        return setDouble(index, element);
+    }
+
+
+    public boolean add(Double element) {
+        addDouble(element);
+        return true;
+    }
+
+
+    public void add(int index, Double element) {
+        addDouble(index, element);
+    }
+
+
+    public Double remove(int index) {
+        return removeAt(index);
+    }
+
+
+    public int indexOf(Object o) {
+        if (o instanceof Double)
+            return indexOfDouble((Double)o);
+        return -1;
+    }
+
+
+    double[] newArray(int length) {
+        return new double[length];
+    }
+
+
+    void writeValues(ObjectOutputStream s, double[] array, int n) throws IOException {
+        for (int i = 0; i < n; i++)
+            s.writeDouble(array[i]);
+    }
+
+
+    void readValues(ObjectInputStream s, double[] array, int n) throws IOException {
+        for (int i = 0; i < n; i++)
+            array[i] = s.readDouble();
+    }
+
+
+//End
+}
@@ -21,22 +21,78 @@
  * @date Oct 2006
  */
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 public class QuickLinkedList<E> extends AbstractList<E>
-    implements Serializable, Cloneable, Collection<E>, List<E>, Iterable<E> {
+    implements Serializable, Cloneable, Collection<E>, List<E>, Iterable<E>, Deque<E> {
 
 
-    // fragmente arrays to store the "list"
-    private LinkedList<ArrayList<E>> list;
+    // fragmente arrays to store the "list", circular so both ends of each,
+    // and of the list of them, can be added to and removed from in O(1)
+    private transient RingList<RingList<E>> list;
+
+    // sizes of the fragment arrays, used to find the array holding an index
+    private transient ChunkIndex index;
+
+    // arrays holding each value, null unless enabled by setValueIndexed
+    private transient ValueIndex values;
+
+    // arrays shared with a snapshot or clone, copied before they are changed;
+    // null until the first snapshot
+    private transient Set<RingList<E>> shared;
+
+    // observed operation mix, null unless enabled by setAdaptive
+    private transient FragmentTuner tuner;
+
+    // next sublist for optimizeStep to look at, and whether the current
+    // pass over the sublists has changed any
+    private transient int tidyChunk;
+    private transient boolean tidyChanged;
+
+    // the fragment size was changed by the tuner and the sublists are
+    // being brought to it
+    private transient boolean rechunking;
+
+    // structural changes made by evening out sublists alone, which leave
+    // every element at its index; iterators and views that only missed
+    // these find their place again instead of failing
+    private transient int reshapes;
+
+    // bulk operations running a callback while they walk the sublists by
+    // number; re-chunking on reads waits until none is
+    private transient int walking;
+
+    // shape and operation counts, null until stats is first called
+    private transient ListStats stats;
+
+    // where sublists come from and go back to, null unless set by setChunkPool
+    private transient ChunkPool pool;
 
     // size: track the size of the entire list
     // fragment: size of each sublist
     private int size, fragment;
 
-    // serial version number
-    public static final long serialVersionUID = 42L;
+    // serial version number, changed from 42 when the elements started
+    // being written by writeObject instead of as the sublists themselves
+    private static final long serialVersionUID = 43L;
+
+    // parallel searches: smallest list searched in parallel, and number
+    // of elements each task scans on its own
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int PARALLEL_GRAIN = 1 << 13;
+
+    // elements moved, or sublists looked at, per step of adaptive re-chunking
+    private static final int RECHUNK_BUDGET = 1 << 12;
 
 
     /**
@@ -46,8 +102,9 @@ public class QuickLinkedList<E> extends AbstractList<E>
     public QuickLinkedList() {
         size = 0;
         fragment = 1000;
-        list = new LinkedList<ArrayList<E>>();
-        list.add(new ArrayList<E>((int)(fragment * 1.1)));
+        list = new RingList<RingList<E>>(16);
+        index = new ChunkIndex();
+        addChunk(newChunk());
     }
 
 
@@ -61,8 +118,9 @@ public class QuickLinkedList<E> extends AbstractList<E>
             throw new IllegalArgumentException();
         size = 0;
         this.fragment = fragment;
-        list = new LinkedList<ArrayList<E>>();
-        list.add(new ArrayList<E>((int)(fragment * 1.1)));
+        list = new RingList<RingList<E>>(16);
+        index = new ChunkIndex();
+        addChunk(newChunk());
     }
 
 
@@ -76,12 +134,10 @@ public class QuickLinkedList<E> extends AbstractList<E>
 
         size = 0;
         fragment = 1000;
-        list = new LinkedList<ArrayList<E>>();
-        list.add(new ArrayList<E>((int)(fragment * 1.1)));
-
-        Iterator<? extends E> it = c.iterator();
-        while(it.hasNext())
-            this.add((E)it.next());
+        list = new RingList<RingList<E>>(16);
+        index = new ChunkIndex();
+        addChunk(newChunk());
+        addAll(c);
     }
 
 
@@ -97,12 +153,10 @@ public class QuickLinkedList<E> extends AbstractList<E>
             throw new IllegalArgumentException();
         size = 0;
         this.fragment = fragment;
-        list = new LinkedList<ArrayList<E>>();
-        list.add(new ArrayList<E>((int)(fragment * 1.1)));
-
-        Iterator<? extends E> it = c.iterator();
-        while(it.hasNext())
-            this.add((E)it.next());
+        list = new RingList<RingList<E>>(16);
+        index = new ChunkIndex();
+        addChunk(newChunk());
+        addAll(c);
     }
 
 
@@ -139,6 +193,8 @@ public class QuickLinkedList<E> extends AbstractList<E>
      * @return true if the specified element is present; false otherwise.
      */
     public boolean contains(Object o) {
+        if (values != null)
+            return values.contains(o);
         if (indexOf(o) == -1)
             return false;
         else
@@ -154,29 +210,339 @@ public class QuickLinkedList<E> extends AbstractList<E>
      *          returns -1 if the object is not found.
      */
     public int indexOf(Object o) {
-        ListIterator<ArrayList<E>> it = list.listIterator(0);
-        while(it.hasNext()) {
-            ArrayList<E> l = it.next();
+        if (values != null) {
+            int k = indexedChunk(o, false);
+            return k == -1 ? -1 : index.offset(k) + list.get(k).indexOf(o);
+        }
+
+        scanned();
+        int base = 0;
+        for (RingList<E> l : list) {
             int loc = l.indexOf(o);
             if (loc != -1)
-                return loc;
+                return base + loc;
+            base += l.size();
+        }
+        return -1;
+    }
+
+
+    /**
+     * Searches for the last occurence of the given argument, testing
+     * for equality using the equals method.
+     * @param o An object to search for.
+     * @return the index of the last occurrence of the argument in this list;
+     *          returns -1 if the object is not found.
+     */
+    public int lastIndexOf(Object o) {
+        if (values != null) {
+            int k = indexedChunk(o, true);
+            return k == -1 ? -1 : index.offset(k) + list.get(k).lastIndexOf(o);
+        }
+
+        scanned();
+        int base = size;
+        for (int k = list.size() - 1; k >= 0; k--) {
+            RingList<E> l = list.get(k);
+            base -= l.size();
+            int loc = l.lastIndexOf(o);
+            if (loc != -1)
+                return base + loc;
         }
         return -1;
     }
 
 
+    /**
+     * Same as indexOf, but large lists are searched by several threads of the
+     * common ForkJoinPool, each scanning its own range of sublists. Ranges
+     * after a sublist that already holds a match are skipped.
+     * @param o An object to search for.
+     * @return the index of the first occurrence of the argument in this list;
+     *          returns -1 if the object is not found.
+     */
+    public int parallelIndexOf(Object o) {
+        return parallelSearch(o, false, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * Same as parallelIndexOf, using the given pool.
+     * @param o An object to search for.
+     * @param pool pool to run the search in.
+     * @return the index of the first occurrence of the argument in this list;
+     *          returns -1 if the object is not found.
+     */
+    public int parallelIndexOf(Object o, ForkJoinPool pool) {
+        return parallelSearch(o, false, pool);
+    }
+
+
+    /**
+     * Same as lastIndexOf, but large lists are searched by several threads of
+     * the common ForkJoinPool.
+     * @param o An object to search for.
+     * @return the index of the last occurrence of the argument in this list;
+     *          returns -1 if the object is not found.
+     */
+    public int parallelLastIndexOf(Object o) {
+        return parallelSearch(o, true, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * Same as contains, but large lists are searched by several threads of
+     * the common ForkJoinPool.
+     * @param o element whose presence in this List is to be tested.
+     * @return true if the specified element is present; false otherwise.
+     */
+    public boolean parallelContains(Object o) {
+        return parallelIndexOf(o) != -1;
+    }
+
+
+    private int parallelSearch(Object o, boolean last, ForkJoinPool pool) {
+        if (size < PARALLEL_THRESHOLD || list.size() < 2 || values != null)
+            return last ? lastIndexOf(o) : indexOf(o);
+
+        Search search = new Search(o, last, 0, list.size(), new AtomicInteger(last ? -1 : Integer.MAX_VALUE));
+        pool.invoke(search);
+
+        int k = search.found.get();
+        if (k < 0 || k == Integer.MAX_VALUE)
+            return -1;
+        RingList<E> l = list.get(k);
+        return index.offset(k) + (last ? l.lastIndexOf(o) : l.indexOf(o));
+    }
+
+
+    /**
+     * Turns the value index on or off. While it is on, the list keeps a hash
+     * from each value to the sublists holding it, so contains is O(1) and
+     * indexOf, lastIndexOf and remove(Object) only scan the sublists that
+     * hold the value. The index is updated by every change to the list and
+     * costs a hash entry per distinct value and sublist.
+     * @param enabled true to build the index, false to drop it.
+     */
+    public void setValueIndexed(boolean enabled) {
+        if (!enabled)
+            values = null;
+        else if (values == null) {
+            values = new ValueIndex();
+            for (RingList<E> array : list)
+                values.addAll(array, array);
+        }
+    }
+
+
+    /**
+     * Tests if the value index is on.
+     * @return true if this list keeps a value index.
+     */
+    public boolean isValueIndexed() {
+        return values != null;
+    }
+
+
+    /**
+     * Turns adaptive fragment sizing on or off. While it is on, the list
+     * counts positional inserts and removes, positional gets and sets, and
+     * scans, and every few thousand operations picks the fragment size that
+     * suits the recent mix: small for inserts in the middle of the list,
+     * large for gets and scans. After a change the sublists are brought to
+     * the new size a few at a time by later operations on the list, gets,
+     * sets and scans included, instead of all at once as optimize does.
+     * Iterators and subList views carry on across these steps, but as reads
+     * can change the list, an adaptive list must not be read by several
+     * threads at once.
+     * @param enabled true to adapt the fragment size, false to keep it.
+     */
+    public void setAdaptive(boolean enabled) {
+        if (!enabled) {
+            tuner = null;
+            rechunking = false;
+        }
+        else if (tuner == null)
+            tuner = new FragmentTuner();
+    }
+
+
+    /**
+     * Tests if adaptive fragment sizing is on.
+     * @return true if this list adapts its fragment size.
+     */
+    public boolean isAdaptive() {
+        return tuner != null;
+    }
+
+
+    /**
+     * Takes new sublists from the given pool, and gives the pool back the
+     * sublists this list throws away, instead of allocating and dropping
+     * them. One pool can serve many lists. Sublists shared with a snapshot
+     * or clone are never given back.
+     * @param pool the pool to use, or null to stop pooling.
+     */
+    public void setChunkPool(ChunkPool pool) {
+        this.pool = pool;
+    }
+
+
+    /**
+     * Returns the pool this list takes its sublists from.
+     * @return the chunk pool, or null if this list does not use one.
+     */
+    public ChunkPool getChunkPool() {
+        return pool;
+    }
+
+
+    // count a scan of the whole list and do a step of re-chunking
+    private void scanned() {
+        if (tuner != null && tuner.scan(size))
+            tune();
+        rechunk();
+    }
+
+
+    // count a positional get or set and do a step of re-chunking
+    private void looked() {
+        if (tuner != null && tuner.lookup())
+            tune();
+        rechunk();
+    }
+
+
+    // count a positional insert or remove and do a step of re-chunking
+    private void adapt() {
+        if (tuner != null && tuner.insert())
+            tune();
+        rechunk();
+    }
+
+
+    /**
+     * Bring a few more sublists to the fragment size picked by the tuner,
+     * unless no change is under way or a bulk operation is walking the
+     * sublists
+     */
+    private void rechunk() {
+        if (rechunking && walking == 0 && tidy(RECHUNK_BUDGET))
+            rechunking = false;
+    }
+
+
+    /**
+     * Switch to the fragment size the tuner picks, and start re-chunking
+     * if it changed
+     */
+    private void tune() {
+        int f = tuner.target(fragment);
+        if (f != fragment) {
+            fragment = f;
+            rechunking = true;
+        }
+    }
+
+
+    /**
+     * Returns the shape of this list's sublists and counts of the
+     * operations done on it, see ListStats. The same object is returned
+     * every time; it can be registered with JMX to watch the list.
+     * @return the stats of this list.
+     */
+    public ListStats stats() {
+        if (stats == null)
+            stats = new ListStats(this);
+        return stats;
+    }
+
+
+    /**
+     * Return the number of sublists
+     */
+    int chunkCount() {
+        return list.size();
+    }
+
+
+    /**
+     * Return sublist k, which the caller must not change
+     */
+    List<E> chunk(int k) {
+        return list.get(k);
+    }
+
+
+    /**
+     * Return the index of the first element of sublist k
+     */
+    int chunkStart(int k) {
+        return index.offset(k);
+    }
+
+
+    /**
+     * Return the number of elements in each sublist
+     */
+    int[] chunkSizes() {
+        return index.sizes();
+    }
+
+
+    // find the sublist and offset of an index, see ChunkIndex.locate
+    private long locate(int i) {
+        if (ListStats.ENABLED)
+            stats().lookup(index.levels(i));
+        return index.locate(i);
+    }
+
+
+    /**
+     * Use the value index to find the first, or last, sublist holding o.
+     * The sublists holding it are looked up by the position they were
+     * last numbered at, without looking at their elements.
+     */
+    private int indexedChunk(Object o, boolean last) {
+        int found = -1;
+        for (ValueIndex.Entry e = values.chunks(o); e != null; e = e.next) {
+            int k = position((RingList<?>)e.chunk);
+            if (found < 0 || (last ? k > found : k < found))
+                found = k;
+        }
+        return found;
+    }
+
+
+    /**
+     * Return the position of a sublist of this list. Positions are kept in
+     * the sublists as hints; if the hint is out of date because sublists
+     * were added or removed before it, all of them are numbered again.
+     */
+    private int position(RingList<?> array) {
+        int k = array.position;
+        if (k >= list.size() || list.get(k) != array) {
+            for (int i = 0; i < list.size(); i++)
+                list.get(i).position = i;
+            k = array.position;
+        }
+        return k;
+    }
+
+
     /**
      * Returns an array containing all of the elements in this list in the correct order.
      * @return an array containing all of the elements in this list in the correct order.
      *
      */
     public Object[] toArray() {
+        scanned();
         Object[] obj = new Object[size];
         int index = 0;
 
-        ListIterator<ArrayList<E>> it = list.listIterator(0);
+        ListIterator<RingList<E>> it = list.listIterator(0);
         while(it.hasNext()) {
-            ArrayList<E> l = it.next();
+            RingList<E> l = it.next();
             for (int i = 0; i < l.size(); i++) {
                 obj[index++] = l.get(i);
             }
@@ -185,6 +551,55 @@ public class QuickLinkedList<E> extends AbstractList<E>
     }
 
 
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     * The iterator walks the sublists directly instead of calling get(int).
+     * @return an iterator over the elements in this list in proper sequence.
+     */
+    public Iterator<E> iterator() {
+        scanned();
+        return new Itr(0);
+    }
+
+
+    /**
+     * Returns a list iterator over the elements in this list in proper sequence.
+     * @return a list iterator over the elements in this list in proper sequence.
+     */
+    public ListIterator<E> listIterator() {
+        scanned();
+        return new Itr(0);
+    }
+
+
+    /**
+     * Returns a list iterator over the elements in this list in proper sequence,
+     * starting at the specified position in the list.
+     * @param index index of the first element to be returned by next.
+     * @return a list iterator starting at the specified position.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+     */
+    public ListIterator<E> listIterator(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException();
+        scanned();
+        return new Itr(index);
+    }
+
+
+    /**
+     * Creates a late-binding and fail-fast Spliterator over the elements in
+     * this list. The spliterator splits on sublist boundaries, so every part
+     * handed to a parallel stream is made of whole sublists that are
+     * traversed through their own backing arrays.
+     * @return a Spliterator over the elements in this list.
+     */
+    public Spliterator<E> spliterator() {
+        scanned();
+        return new ChunkSpliterator(0, -1, 0, 0, 0, 0, 0);
+    }
+
+
     /**
      * Returns the element at the specified position in this list.
      * @param index index of element to return.
@@ -195,17 +610,12 @@ public class QuickLinkedList<E> extends AbstractList<E>
 
         if (index >= size || index < 0)
             throw new IndexOutOfBoundsException();
-        else {
-            ListIterator<ArrayList<E>> it = list.listIterator(0);
-            while(it.hasNext()) {
-                ArrayList<E> array = it.next();
-                if (array.size() <= index)
-                    index -= array.size();
-                else
-                    return array.get(index);
-            }
-            return null; // unreachable
-        }
+
+        if (ListStats.ENABLED)
+            stats().get();
+        looked();
+        long pos = locate(index);
+        return list.get(ChunkIndex.chunk(pos)).get(ChunkIndex.offset(pos));
     }
 
 
@@ -219,20 +629,16 @@ public class QuickLinkedList<E> extends AbstractList<E>
     public E set(int index, E element) {
         if (index >= size || index < 0)
             throw new IndexOutOfBoundsException();
-        else {
-            ListIterator<ArrayList<E>> it = list.listIterator(0);
-            while(it.hasNext()) {
-                ArrayList<E> array = it.next();
-                if (array.size() <= index)
-                    index -= array.size();
-                else {
-                    E current = array.get(index);
-                    array.set(index, element);
-                    return current;
-                }
-            }
-            return null; // unreachable
+
+        looked();
+        long pos = locate(index);
+        RingList<E> array = writable(ChunkIndex.chunk(pos));
+        E current = array.set(ChunkIndex.offset(pos), element);
+        if (values != null) {
+            values.remove(current, array);
+            values.add(element, array);
         }
+        return current;
     }
 
 
@@ -242,14 +648,23 @@ public class QuickLinkedList<E> extends AbstractList<E>
      * @return true (as per the general contract of Collection.add).
      */
     public boolean add(E o) {
-        if (list.getLast().size() < fragment)
-            list.getLast().add(o);
+        int last = list.size() - 1;
+        RingList<E> l = list.get(last);
+        if (l.size() < fragment) {
+            l = writable(last);
+            l.add(o);
+            index.update(last, 1);
+        }
         else {
-            ArrayList<E> l = new ArrayList<E>((int)(fragment * 1.1));
+            l = newChunk();
             l.add(o);
-            list.add(l);
+            addChunk(l);
         }
+        if (values != null)
+            values.add(o, l);
         size++;
+        modCount++;
+        rechunk();
         return true;
     }
 
@@ -267,17 +682,24 @@ public class QuickLinkedList<E> extends AbstractList<E>
         if (index > size || index < 0)
             throw new IndexOutOfBoundsException();
 
-        ListIterator<ArrayList<E>> it = list.listIterator(0);
-        while(it.hasNext()) {
-            ArrayList<E> array = it.next();
-            if (array.size() <= index) {
-                index -= array.size();
-            } else {
-                array.add(index, o);
-                size++;
-                return;
-            }
+        if (index == size) {
+            add(o);
+            return;
         }
+
+        if (ListStats.ENABLED)
+            stats().insert();
+        long pos = locate(index);
+        int k = ChunkIndex.chunk(pos);
+        RingList<E> array = writable(k);
+        array.add(ChunkIndex.offset(pos), o);
+        this.index.update(k, 1);
+        if (values != null)
+            values.add(o, array);
+        size++;
+        modCount++;
+        rebalance(k);
+        adapt();
     }
 
 
@@ -291,12 +713,18 @@ public class QuickLinkedList<E> extends AbstractList<E>
      * @return true if the list contained the specified element.
      */
     public boolean remove(Object o) {
-        ListIterator<ArrayList<E>> it = list.listIterator(0);
-        while(it.hasNext()) {
-            ArrayList<E> array = it.next();
-            if (array.contains(o)) {
-                array.remove(o);
-                size--;
+        if (values != null) {
+            int k = indexedChunk(o, false);
+            if (k == -1)
+                return false;
+            removeAt(k, list.get(k).indexOf(o));
+            return true;
+        }
+
+        for (int k = 0; k < list.size(); k++) {
+            int loc = list.get(k).indexOf(o);
+            if (loc != -1) {
+                removeAt(k, loc);
                 return true;
             }
         }
@@ -315,108 +743,1951 @@ public class QuickLinkedList<E> extends AbstractList<E>
         if (index >= size || index < 0)
             throw new IndexOutOfBoundsException();
 
-        ListIterator<ArrayList<E>> it = list.listIterator(0);
-        while(it.hasNext()) {
-            ArrayList<E> l = it.next();
-            if (l.size() <= index)
-                index -= l.size();
-            else {
-                size--;
-                return l.remove(index);
-            }
-        }
-        return null; // unreachable
+        long pos = locate(index);
+        return removeAt(ChunkIndex.chunk(pos), ChunkIndex.offset(pos));
     }
 
 
     /**
-     * Appends all of the elements in the specified Collection to the end of this
-     * list, in the order that they are returned by the specified Collection's Iterator.
-     * The behavior of this operation is undefined if the specified Collection is
-     * modified while the operation is in progress. (This implies that the behavior
-     * of this call is undefined if the specified Collection is this list, and this
-     * list is nonempty.)
-     * @param c the elements to be inserted into this list.
-     * @return true if this list changed as a result of the call.
-     * @throws NullPointerException if the specified collection is null.
-     *
+     * Remove the element at the given offset of sublist k
      */
-    public boolean addAll(Collection<? extends E> c) {
-        if(c == null)
-            throw new NullPointerException();
-
-        Iterator<? extends E> it = c.iterator();
-        while(it.hasNext()){
-            this.add((E)it.next());
-        }
-
-        if(c.size() > 0)
-            return true;
-        else return false;
+    private E removeAt(int k, int offset) {
+        RingList<E> array = writable(k);
+        E removed = array.remove(offset);
+        index.update(k, -1);
+        if (values != null)
+            values.remove(removed, array);
+        size--;
+        modCount++;
+        rebalance(k);
+        adapt();
+        return removed;
     }
 
 
     /**
-     * Removes all of the elements from this list. The list will be \
-     * empty after this call returns.
-     *
+     * Inserts the specified element at the front of this list. The element
+     * goes into the first sublist, or into a new sublist in front of it if
+     * that one is full, so this runs in amortized O(1).
+     * @param e the element to add.
      */
-    public void clear() {
-        size = 0;
-        list.clear();
-        list.add(new ArrayList<E>((int)(fragment * 1.1)));
+    public void addFirst(E e) {
+        RingList<E> array = list.get(0);
+        if (array.size() < fragment) {
+            array = writable(0);
+            array.add(0, e);
+            index.update(0, 1);
+        }
+        else {
+            array = newChunk();
+            array.add(e);
+            list.add(0, array);
+            index.insert(0, 1);
+        }
+        if (values != null)
+            values.add(e, array);
+        size++;
+        modCount++;
     }
 
 
     /**
-     * Redistribute the entire list evenly throughout. After many add/remove to
-     * index operation, the list can potentially becomes unevenly distributed and
-     * see a decrease in performance with other operations.
-     *
-     * @param fragment new sublist size
-     *
+     * Appends the specified element to the end of this list, see add(E).
+     * @param e the element to add.
      */
-    public void optimize(int fragment) {
+    public void addLast(E e) {
+        add(e);
+    }
 
-        if(fragment < 0)
-            throw new IllegalArgumentException();
 
-        this.fragment = fragment;
-        LinkedList<ArrayList<E>> l2 = new LinkedList<ArrayList<E>>();
-        l2.add(new ArrayList<E>((int)(fragment * 1.1)));
+    public boolean offerFirst(E e) {
+        addFirst(e);
+        return true;
+    }
 
-        ListIterator<ArrayList<E>> it = list.listIterator(0);
-        while(it.hasNext()) {
-            ArrayList<E> array = it.next();
-            for (int i = 0; i < array.size(); i++) {
 
-                if (l2.getLast().size() < fragment) {
-                    l2.getLast().add(array.get(i));
-                }
-                else {
-                    ArrayList<E> nextList = new ArrayList<E>((int)(fragment * 1.1));
-                    nextList.add(array.get(i));
-                    l2.add(nextList);
-                }
-            }
-        }
+    public boolean offerLast(E e) {
+        return add(e);
+    }
+
+
+    public boolean offer(E e) {
+        return add(e);
+    }
+
 
-        list = l2;
+    public void push(E e) {
+        addFirst(e);
     }
 
 
     /**
-     * Returns a shallow copy of this ArrayList instance. (The elements
-     * themselves are not copied.)
-     * @return a clone of this ArrayList instance.
-     *
+     * Removes and returns the first element of this list. The first sublist
+     * is dropped as soon as it is empty instead of being merged into its
+     * neighbour, so this runs in amortized O(1).
+     * @return the first element, or null if this list is empty.
      */
-    public Object clone() {
+    public E pollFirst() {
+        return size == 0 ? null : removeEnd(firstChunk(), 0);
+    }
+
+
+    /**
+     * Removes and returns the last element of this list in amortized O(1).
+     * @return the last element, or null if this list is empty.
+     */
+    public E pollLast() {
+        if (size == 0)
+            return null;
+        int k = lastChunk();
+        return removeEnd(k, index.size(k) - 1);
+    }
+
+
+    public E poll() {
+        return pollFirst();
+    }
+
+
+    public E removeFirst() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return pollFirst();
+    }
+
+
+    public E removeLast() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return pollLast();
+    }
+
+
+    public E remove() {
+        return removeFirst();
+    }
+
+
+    public E pop() {
+        return removeFirst();
+    }
+
+
+    public E peekFirst() {
+        return size == 0 ? null : list.get(firstChunk()).get(0);
+    }
+
+
+    public E peekLast() {
+        if (size == 0)
+            return null;
+        int k = lastChunk();
+        return list.get(k).get(index.size(k) - 1);
+    }
+
+
+    public E peek() {
+        return peekFirst();
+    }
+
+
+    public E getFirst() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return peekFirst();
+    }
+
+
+    public E getLast() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return peekLast();
+    }
+
+
+    public E element() {
+        return getFirst();
+    }
+
+
+    public boolean removeFirstOccurrence(Object o) {
+        return remove(o);
+    }
+
+
+    public boolean removeLastOccurrence(Object o) {
+        int i = lastIndexOf(o);
+        if (i == -1)
+            return false;
+        remove(i);
+        return true;
+    }
+
+
+    /**
+     * Returns an iterator over the elements in this list in reverse order.
+     * @return an iterator from the last element to the first.
+     */
+    public Iterator<E> descendingIterator() {
+        final ListIterator<E> it = listIterator(size);
+        return new Iterator<E>() {
+            public boolean hasNext() {
+                return it.hasPrevious();
+            }
+
+            public E next() {
+                return it.previous();
+            }
+
+            public void remove() {
+                it.remove();
+            }
+        };
+    }
+
+
+    /**
+     * Returns a view of this list in reverse order. Changes to either are
+     * seen in the other. The view is both a List and a Deque, as this list
+     * is, so the method overrides List.reversed and Deque.reversed alike
+     * on the releases that have them.
+     * @return a reverse-ordered view of this list.
+     */
+    public Reversed<E> reversed() {
+        return new Reversed<E>(this);
+    }
+
+
+    // first and last sublists holding an element, size > 0
+    private int firstChunk() {
+        int k = 0;
+        while (index.size(k) == 0)
+            k++;
+        return k;
+    }
+
+    private int lastChunk() {
+        int k = list.size() - 1;
+        while (index.size(k) == 0)
+            k--;
+        return k;
+    }
+
+
+    /**
+     * Remove the element at the given offset, the first or the last, of
+     * sublist k. The sublist is dropped if that empties it and it is not
+     * the only one; no other rebalancing is done.
+     */
+    private E removeEnd(int k, int offset) {
+        RingList<E> array = writable(k);
+        E removed = array.remove(offset);
+        index.update(k, -1);
+        if (values != null)
+            values.remove(removed, array);
+        if (array.isEmpty() && list.size() > 1) {
+            discard(list.remove(k));
+            index.remove(k);
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+
+    /**
+     * Appends all of the elements in the specified Collection to the end of this
+     * list, in the order that they are returned by the specified Collection's Iterator.
+     * The behavior of this operation is undefined if the specified Collection is
+     * modified while the operation is in progress. (This implies that the behavior
+     * of this call is undefined if the specified Collection is this list, and this
+     * list is nonempty.)
+     * @param c the elements to be inserted into this list.
+     * @return true if this list changed as a result of the call.
+     * @throws NullPointerException if the specified collection is null.
+     *
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        if(c == null)
+            throw new NullPointerException();
+
+        E[] a = elementsOf(c);
+        if (a.length == 0)
+            return false;
+
+        // top up the last sublist, then add whole new ones
+        int last = list.size() - 1;
+        int from = Math.min(a.length, Math.max(fragment - list.get(last).size(), 0));
+        if (from > 0) {
+            RingList<E> array = writable(last);
+            array.addAll(Arrays.asList(a).subList(0, from));
+            index.update(last, from);
+            if (values != null)
+                values.addAll(Arrays.asList(a).subList(0, from), array);
+        }
+
+        ArrayList<RingList<E>> chunks = chunksOf(a, from, a.length);
+        for (RingList<E> array : chunks) {
+            addChunk(array);
+            if (values != null)
+                values.addAll(array, array);
+        }
+
+        size += a.length;
+        modCount++;
+        return true;
+    }
+
+
+    /**
+     * Inserts all of the elements in the specified collection into this list
+     * at the specified position. Shifts the element currently at that position
+     * (if any) and any subsequent elements to the right. The sublist holding
+     * the position is split in two and new sublists filled from the collection
+     * are put in between, so the cost is O(k + n/fragment) for k new elements.
+     * @param index index at which to insert the first element.
+     * @param c the elements to be inserted into this list.
+     * @return true if this list changed as a result of the call.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+     * @throws NullPointerException if the specified collection is null.
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException();
+        if (index == size)
+            return addAll(c);
+
+        E[] a = elementsOf(c);
+        if (a.length == 0)
+            return false;
+
+        long pos = locate(index);
+        int k = ChunkIndex.chunk(pos), offset = ChunkIndex.offset(pos);
+
+        // cut the sublist at the insert position
+        RingList<E> head = writable(k);
+        List<E> rest = head.subList(offset, head.size());
+        if (values != null)
+            values.removeAll(rest, head);
+        RingList<E> tail = newChunk();
+        tail.addAll(rest);
+        rest.clear();
+
+        // top up the head, fill new sublists, and close with the tail
+        int from = Math.min(a.length, Math.max(fragment - head.size(), 0));
+        head.addAll(Arrays.asList(a).subList(0, from));
+        this.index.update(k, from - tail.size());
+
+        ArrayList<RingList<E>> chunks = chunksOf(a, from, a.length);
+        if (!chunks.isEmpty() && chunks.get(chunks.size() - 1).size() + tail.size() <= fragment) {
+            chunks.get(chunks.size() - 1).addAll(tail);
+            discard(tail);
+        }
+        else if (chunks.isEmpty() && head.size() + tail.size() <= Math.max(2 * fragment, 1)) {
+            head.addAll(tail);
+            this.index.update(k, tail.size());
+            discard(tail);
+        }
+        else
+            chunks.add(tail);
+
+        int[] sizes = new int[chunks.size()];
+        for (int i = 0; i < sizes.length; i++)
+            sizes[i] = chunks.get(i).size();
+        list.addAll(k + 1, chunks);
+        this.index.insert(k + 1, sizes, sizes.length);
+
+        if (values != null) {
+            values.addAll(head.subList(offset, head.size()), head);
+            for (RingList<E> array : chunks)
+                values.addAll(array, array);
+        }
+
+        size += a.length;
+        modCount++;
+
+        // the sublists at both ends of the insert may be short; the last
+        // one moves by however many sublists rebalancing the first adds or removes
+        int count = list.size();
+        rebalance(k);
+        int last = k + chunks.size() + list.size() - count;
+        if (last > k && last < list.size())
+            rebalance(last);
+        return true;
+    }
+
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * fromIndex, inclusive, and toIndex, exclusive. Sublists lying entirely
+     * inside the range are dropped whole; only the two sublists at its ends
+     * are trimmed.
+     * @param fromIndex index of first element to be removed.
+     * @param toIndex index after last element to be removed.
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex)
+            return;
+
+        long first = locate(fromIndex), last = locate(toIndex - 1);
+        int k1 = ChunkIndex.chunk(first), k2 = ChunkIndex.chunk(last);
+        int from = ChunkIndex.offset(first), to = ChunkIndex.offset(last) + 1;
+
+        if (k1 == k2) {
+            clearRange(k1, from, to);
+        }
+        else {
+            clearRange(k1, from, list.get(k1).size());
+            clearRange(k2, 0, to);
+
+            for (RingList<E> array : list.subList(k1 + 1, k2)) {
+                if (values != null)
+                    values.removeAll(array, array);
+                discard(array);
+            }
+            list.subList(k1 + 1, k2).clear();
+            index.remove(k1 + 1, k2);
+            if (k1 + 1 < list.size())
+                rebalance(k1 + 1);
+        }
+        size -= toIndex - fromIndex;
+        modCount++;
+        rebalance(k1);
+    }
+
+
+    // remove [from, to) of sublist k, leaving size and rebalancing to the caller
+    private void clearRange(int k, int from, int to) {
+        RingList<E> array = writable(k);
+        List<E> range = array.subList(from, to);
+        if (values != null)
+            values.removeAll(range, array);
+        range.clear();
+        index.update(k, from - to);
+    }
+
+
+    /**
+     * Returns a view of the portion of this list between fromIndex, inclusive,
+     * and toIndex, exclusive. The view finds its elements through the sublist
+     * index of this list and iterates with the same cursor, and clearing it
+     * drops whole sublists through removeRange.
+     * @param fromIndex low endpoint (inclusive) of the subList.
+     * @param toIndex high endpoint (exclusive) of the subList.
+     * @return a view of the specified range within this list.
+     * @throws IndexOutOfBoundsException for an illegal endpoint index value.
+     */
+    public List<E> subList(int fromIndex, int toIndex) {
+        subListRangeCheck(fromIndex, toIndex, size);
+        return new SubList(null, fromIndex, toIndex - fromIndex);
+    }
+
+
+    private static void subListRangeCheck(int fromIndex, int toIndex, int size) {
+        if (fromIndex < 0 || toIndex > size)
+            throw new IndexOutOfBoundsException();
+        if (fromIndex > toIndex)
+            throw new IllegalArgumentException();
+    }
+
+
+    /**
+     * Moves all of the elements of another list to the end of this list. The
+     * sublists of the other list are linked in as they are, without copying
+     * any element, so this runs in O(number of sublists). The other list is
+     * empty after this call returns.
+     * @param other list whose elements are moved to this list.
+     * @throws IllegalArgumentException if other is this list.
+     */
+    public void append(QuickLinkedList<E> other) {
+        if (other == this)
+            throw new IllegalArgumentException();
+        if (other.size == 0)
+            return;
+
+        int junction = list.size() - 1;
+        if (values != null)
+            for (RingList<E> array : other.list)
+                values.addAll(array, array);
+        inheritShared(other, other.list);
+        adopt(other.list, 0, other.list.size());
+        size += other.size;
+        modCount++;
+        // the sublists belong to this list now, so other must not pool them
+        other.list.clear();
+        other.clear();
+
+        // the old last sublist may be short or empty
+        rebalance(junction);
+    }
+
+
+    /**
+     * Splits this list in two at the given position. The elements from index
+     * to the end are moved into a new list that is returned, and this list
+     * keeps the elements before index. Whole sublists are moved without
+     * copying; only the sublist holding index is cut, so this runs in
+     * O(number of sublists + fragment size).
+     * @param index index of the first element of the returned list.
+     * @return a new list with the elements from index to the end.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+     */
+    public QuickLinkedList<E> splitAt(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        QuickLinkedList<E> tail = new QuickLinkedList<E>(fragment);
+        tail.pool = pool;
+        if (index == size) {
+            tail.setValueIndexed(values != null);
+            tail.setAdaptive(tuner != null);
+            return tail;
+        }
+
+        long pos = locate(index);
+        int k = ChunkIndex.chunk(pos), offset = ChunkIndex.offset(pos);
+
+        // cut the sublist holding index unless the split is on its boundary
+        int from = k;
+        if (offset > 0) {
+            RingList<E> first = newChunk();
+            first.addAll(list.get(k).subList(offset, list.get(k).size()));
+            clearRange(k, offset, list.get(k).size());
+            tail.adopt(Collections.singletonList(first), 0, 1);
+            from = k + 1;
+        }
+        tail.inheritShared(this, list.subList(from, list.size()));
+        tail.adopt(list, from, list.size());
+        tail.size = size - index;
+
+        for (RingList<E> array : list.subList(from, list.size())) {
+            if (values != null)
+                values.removeAll(array, array);
+            drop(array);
+        }
+        tail.setValueIndexed(values != null);
+        tail.setAdaptive(tuner != null);
+
+        list.subList(from, list.size()).clear();
+        this.index.remove(from, this.index.count());
+        if (list.isEmpty())
+            addChunk(newChunk());
+        size = index;
+        modCount++;
+
+        // the sublists on both sides of the cut may be short
+        rebalance(list.size() - 1);
+        tail.rebalance(0);
+        return tail;
+    }
+
+
+    /**
+     * Removes all of the elements from this list. The list will be \
+     * empty after this call returns.
+     *
+     */
+    public void clear() {
+        size = 0;
+        modCount++;
+        if (pool != null)
+            for (RingList<E> array : list)
+                discard(array);
+        list.clear();
+        index.clear();
+        if (values != null)
+            values.clear();
+        shared = null;
+        rechunking = false;
+        addChunk(newChunk());
+    }
+
+
+    /**
+     * Sorts this list in the order of the given comparator, or the natural
+     * order of the elements if it is null. Each sublist is sorted on its
+     * own, by the common ForkJoinPool for large lists, and the sorted
+     * sublists are merged into new sublists of the fragment size. The sort
+     * is stable, and the list is left unchanged if the comparator throws.
+     * @param c the comparator, or null for the natural order.
+     * @throws ConcurrentModificationException if the comparator changes the list.
+     */
+    public void sort(Comparator<? super E> c) {
+        @SuppressWarnings("unchecked")
+        Comparator<? super E> cmp = c != null ? c : (Comparator<? super E>)Comparator.naturalOrder();
+        int expectedModCount = modCount;
+
+        Object[][] runs = new Object[list.size()][];
+        for (int k = 0; k < runs.length; k++)
+            runs[k] = list.get(k).toArray();
+        SortRuns<E> sort = new SortRuns<E>(runs, cmp, 0, runs.length);
+        ArrayList<RingList<E>> chunks;
+        walking++;
+        try {
+            if (size >= PARALLEL_THRESHOLD && runs.length > 1)
+                ForkJoinPool.commonPool().invoke(sort);
+            else
+                sort.compute();
+            chunks = merge(runs, cmp);
+        } finally {
+            walking--;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+
+        if (pool != null)
+            for (RingList<E> array : list)
+                discard(array);
+        list = new RingList<RingList<E>>(chunks.size() + 1);
+        index.clear();
+        for (RingList<E> array : chunks)
+            addChunk(array);
+        if (list.isEmpty())
+            addChunk(newChunk());
+        shared = null;
+        rechunking = false;
+        modCount++;
+
+        if (values != null) {
+            values.clear();
+            for (RingList<E> array : list)
+                values.addAll(array, array);
+        }
+    }
+
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to it, sublist by sublist.
+     * @param operator the operator to apply to each element.
+     * @throws ConcurrentModificationException if the operator changes the list.
+     */
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        scanned();
+        int expectedModCount = modCount;
+        for (int k = 0; k < list.size(); k++) {
+            RingList<E> array = writable(k);
+            if (values != null)
+                values.removeAll(array, array);
+            walking++;
+            try {
+                array.replaceAll(operator);
+            } finally {
+                walking--;
+                if (values != null)
+                    values.addAll(array, array);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate. Each sublist is tested, then compacted in one pass if
+     * anything is to be removed from it; sublists left empty are dropped.
+     * Sublists shared with a snapshot are only copied if they lose an
+     * element. If the predicate throws, the sublists already compacted
+     * stay so.
+     * @param filter a predicate returning true for elements to remove.
+     * @return true if any elements were removed.
+     * @throws ConcurrentModificationException if the predicate changes the list.
+     */
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        scanned();
+        int expectedModCount = modCount, removed = 0;
+        boolean[] flags = new boolean[Math.max(fragment, 1)];
+        try {
+            for (int k = 0; k < list.size(); k++) {
+                RingList<E> array = list.get(k);
+                int n = array.size(), hits = 0;
+                if (flags.length < n)
+                    flags = new boolean[Math.max(n, 2 * flags.length)];
+                walking++;
+                try {
+                    for (int i = 0; i < n; i++)
+                        if (flags[i] = filter.test(array.get(i)))
+                            hits++;
+                } finally {
+                    walking--;
+                }
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if (hits == 0)
+                    continue;
+
+                array = writable(k);
+                if (values != null)
+                    for (int i = 0; i < n; i++)
+                        if (flags[i])
+                            values.remove(array.get(i), array);
+                array.removeFlagged(flags);
+                index.update(k, -hits);
+                size -= hits;
+                removed += hits;
+            }
+        } finally {
+            if (removed > 0) {
+                modCount++;
+                dropEmpty();
+            }
+        }
+        return removed > 0;
+    }
+
+
+    /**
+     * Redistribute the entire list evenly throughout. After many add/remove to
+     * index operation, the list can potentially becomes unevenly distributed and
+     * see a decrease in performance with other operations. This copies every
+     * element at once; see optimizeStep for doing it a little at a time.
+     *
+     * @param fragment new sublist size
+     *
+     */
+    public void optimize(int fragment) {
+
+        if(fragment < 0)
+            throw new IllegalArgumentException();
+
+        this.fragment = fragment;
+        modCount++;
+        RingList<RingList<E>> old = list;
+        list = new RingList<RingList<E>>(16);
+        index.clear();
+        RingList<E> last = newChunk();
+
+        for (RingList<E> array : old) {
+            for (int i = 0; i < array.size(); i++) {
+
+                if (last.size() >= fragment) {
+                    addChunk(last);
+                    last = newChunk();
+                }
+                last.add(array.get(i));
+            }
+        }
+        addChunk(last);
+        if (pool != null)
+            for (RingList<E> array : old)
+                discard(array);
+        shared = null;
+        rechunking = false;
+
+        if (values != null) {
+            values.clear();
+            for (RingList<E> array : list)
+                values.addAll(array, array);
+        }
+    }
+
+
+    /**
+     * Does a bounded part of the work of optimize, in place. Each call walks
+     * on through the sublists from where the last call stopped and evens out
+     * those holding less than half or more than one and a half times the
+     * fragment size, by splitting them or by merging them with, or moving
+     * elements from, a neighbour. Only the elements of those sublists are
+     * moved, and a call stops once about maxElementsMoved elements were
+     * moved or sublists looked at, so it can be run between requests to
+     * keep a large list balanced without the pause and the copy of optimize.
+     * @param maxElementsMoved most elements to move in this call.
+     * @return true if a whole pass over the sublists found nothing left to
+     *         do, false if more calls are needed.
+     * @throws IllegalArgumentException if maxElementsMoved is negative.
+     */
+    public boolean optimizeStep(int maxElementsMoved) {
+        if (maxElementsMoved < 0)
+            throw new IllegalArgumentException();
+        return tidy(maxElementsMoved);
+    }
+
+
+    /**
+     * Walk on from tidyChunk evening out sublists until the budget of
+     * elements moved and sublists looked at is spent.
+     * @return true if a whole pass over the sublists changed nothing
+     */
+    private boolean tidy(int budget) {
+        int f = Math.max(fragment, 1), low = f / 2, high = f + f / 2;
+        while (budget > 0) {
+            if (tidyChunk >= list.size()) {
+                tidyChunk = 0;
+                if (!tidyChanged)
+                    return true;
+                tidyChanged = false;
+            }
+
+            int k = tidyChunk, n = index.size(k);
+            if (n > high) {
+                // the halves are looked at again
+                split(k);
+                budget -= n / 2;
+            }
+            else if (n < low && list.size() > 1) {
+                int left = k;
+                if (k == list.size() - 1 || (k > 0 && index.size(k - 1) < index.size(k + 1)))
+                    left = k - 1;
+                if (index.size(left) + index.size(left + 1) <= high) {
+                    budget -= index.size(left + 1);
+                    merge(k);
+                }
+                else
+                    budget -= even(left);
+                tidyChunk = left;
+            }
+            else {
+                budget--;
+                tidyChunk++;
+                continue;
+            }
+            tidyChanged = true;
+            modCount++;
+            reshapes++;
+        }
+        return false;
+    }
+
+
+    /**
+     * Move elements between the given sublist and the one after it so each
+     * holds half of their elements.
+     * @return the number of elements moved
+     */
+    private int even(int left) {
+        RingList<E> l = writable(left), r = writable(left + 1);
+        int half = (l.size() + r.size()) / 2, moved;
+        if (l.size() > half) {
+            List<E> upper = l.subList(half, l.size());
+            moved = upper.size();
+            r.addAll(0, upper);
+            if (values != null)
+                values.move(upper, l, r);
+            upper.clear();
+            index.update(left, -moved);
+            index.update(left + 1, moved);
+        }
+        else {
+            List<E> lower = r.subList(0, half - l.size());
+            moved = lower.size();
+            l.addAll(lower);
+            if (values != null)
+                values.move(lower, r, l);
+            lower.clear();
+            index.update(left, moved);
+            index.update(left + 1, -moved);
+        }
+        return moved;
+    }
+
+
+    /**
+     * Keep the given sublist between the low and high water marks: split it in
+     * half once it grows past twice the fragment size, and merge it into a
+     * neighbour once it shrinks below a quarter of the fragment size. This
+     * keeps positional operations bounded without a full optimize().
+     *
+     * @param k sublist that was just changed
+     * @return true if the sublists were restructured
+     */
+    private boolean rebalance(int k) {
+        int n = index.size(k);
+        if (n > Math.max(2 * fragment, 1))
+            split(k);
+        else if ((n < fragment / 4 || n == 0) && list.size() > 1)
+            merge(k);
+        else
+            return false;
+        return true;
+    }
+
+
+    /**
+     * Move the upper half of the given sublist into a new sublist right after it
+     */
+    private void split(int k) {
+        if (ListStats.ENABLED)
+            stats().split();
+        RingList<E> array = writable(k);
+        List<E> upper = array.subList(array.size() / 2, array.size());
+        RingList<E> next = newChunk();
+        next.addAll(upper);
+        if (values != null)
+            values.move(upper, array, next);
+        upper.clear();
+
+        list.add(k + 1, next);
+        index.update(k, -next.size());
+        index.insert(k + 1, next.size());
+    }
+
+
+    /**
+     * Merge the given sublist into its smaller neighbour, dropping it if it
+     * is empty. The merged sublist is split again if it ends up too large.
+     */
+    private void merge(int k) {
+        if (list.size() == 1)
+            return;
+        if (ListStats.ENABLED)
+            stats().merge();
+
+        if (list.get(k).isEmpty()) {
+            discard(list.remove(k));
+            index.remove(k);
+            return;
+        }
+
+        int left = k;
+        if (k == list.size() - 1 || (k > 0 && index.size(k - 1) < index.size(k + 1)))
+            left = k - 1;
+
+        RingList<E> array = writable(left);
+        RingList<E> right = list.remove(left + 1);
+        array.addAll(right);
+        if (values != null)
+            values.move(right, right, array);
+        index.update(left, right.size());
+        index.remove(left + 1);
+        discard(right);
+
+        if (index.size(left) > Math.max(2 * fragment, 1))
+            split(left);
+    }
+
+
+    /**
+     * Return the elements of a collection in an array typed for them. The
+     * array is really an Object[], so it must not escape to callers that
+     * expect an E[].
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T[] elementsOf(Collection<? extends T> c) {
+        return (T[])c.toArray();
+    }
+
+
+    /**
+     * Cut a[from, to) into new sublists of the fragment size
+     */
+    private ArrayList<RingList<E>> chunksOf(E[] a, int from, int to) {
+        int step = Math.max(fragment, 1);
+        ArrayList<RingList<E>> chunks = new ArrayList<RingList<E>>((to - from) / step + 1);
+        for (int i = from; i < to; i += step) {
+            RingList<E> array = newChunk();
+            array.addAll(Arrays.asList(a).subList(i, Math.min(i + step, to)));
+            chunks.add(array);
+        }
+        return chunks;
+    }
+
+
+    /**
+     * Merge sorted runs into new sublists of the fragment size, taking the
+     * smallest head of the runs from a heap each time. Ties go to the
+     * earlier run, which keeps the merge stable.
+     */
+    private ArrayList<RingList<E>> merge(Object[][] runs, Comparator<? super E> c) {
+        int[] next = new int[runs.length];
+        int[] heap = new int[runs.length];
+        int n = 0;
+        for (int k = 0; k < runs.length; k++)
+            if (runs[k].length > 0)
+                heap[n++] = k;
+        for (int i = n / 2 - 1; i >= 0; i--)
+            siftDown(heap, n, i, runs, next, c);
+
+        int step = Math.max(fragment, 1);
+        ArrayList<RingList<E>> chunks = new ArrayList<RingList<E>>(size / step + 1);
+        RingList<E> array = newChunk();
+        while (n > 0) {
+            int k = heap[0];
+            if (array.size() >= step) {
+                chunks.add(array);
+                array = newChunk();
+            }
+            array.add(head(runs, next, k));
+            next[k]++;
+            if (next[k] == runs[k].length)
+                heap[0] = heap[--n];
+            if (n > 0)
+                siftDown(heap, n, 0, runs, next, c);
+        }
+        if (!array.isEmpty())
+            chunks.add(array);
+        return chunks;
+    }
+
+
+    // restore the heap order below heap[i], comparing the next element of
+    // each run and then the run number
+    private void siftDown(int[] heap, int n, int i, Object[][] runs, int[] next, Comparator<? super E> c) {
+        int k = heap[i];
+        E e = head(runs, next, k);
+        while (2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && before(heap[child + 1], heap[child], runs, next, c))
+                child++;
+            int j = heap[child];
+            int d = c.compare(head(runs, next, j), e);
+            if (d > 0 || (d == 0 && j > k))
+                break;
+            heap[i] = j;
+            i = child;
+        }
+        heap[i] = k;
+    }
+
+
+    // next element of run k
+    @SuppressWarnings("unchecked")
+    private E head(Object[][] runs, int[] next, int k) {
+        return (E)runs[k][next[k]];
+    }
+
+
+    // true if the next element of run a comes before that of run b
+    private boolean before(int a, int b, Object[][] runs, int[] next, Comparator<? super E> c) {
+        int d = c.compare(head(runs, next, a), head(runs, next, b));
+        return d < 0 || (d == 0 && a < b);
+    }
+
+
+    /**
+     * Drop the sublists that are empty, keeping one if they all are
+     */
+    private void dropEmpty() {
+        RingList<RingList<E>> old = list;
+        list = new RingList<RingList<E>>(old.size());
+        index.clear();
+        for (RingList<E> array : old) {
+            if (array.isEmpty())
+                discard(array);
+            else
+                addChunk(array);
+        }
+        if (list.isEmpty())
+            addChunk(newChunk());
+    }
+
+
+    /**
+     * Create an empty sublist sized for the current fragment size
+     */
+    private RingList<E> newChunk() {
+        int capacity = chunkCapacity();
+        return pool == null ? new RingList<E>(capacity) : pool.<E>take(capacity);
+    }
+
+
+    // room a new sublist is made with
+    private int chunkCapacity() {
+        return (int)(fragment * 1.1);
+    }
+
+
+    /**
+     * Append the sublists chunks[from, to) to the end of the list of sublists,
+     * taking the place of a last sublist that is empty. Sizes are not updated.
+     */
+    private void adopt(List<RingList<E>> chunks, int from, int to) {
+        int last = list.size() - 1;
+        if (to > from && list.get(last).isEmpty()) {
+            discard(list.remove(last));
+            index.remove(last);
+        }
+
+        int[] sizes = new int[to - from];
+        for (int i = from; i < to; i++)
+            sizes[i - from] = chunks.get(i).size();
+        list.addAll(chunks.subList(from, to));
+        index.insert(index.count(), sizes, sizes.length);
+    }
+
+
+    /**
+     * Return sublist k ready to be changed. A sublist shared with a snapshot
+     * is first replaced by a private copy, which takes its place in the value
+     * index too.
+     */
+    private RingList<E> writable(int k) {
+        RingList<E> array = list.get(k);
+        if (shared == null || !shared.remove(array))
+            return array;
+
+        RingList<E> copy = newChunk();
+        copy.addAll(array);
+        list.set(k, copy);
+        if (values != null)
+            values.move(copy, array, copy);
+        return copy;
+    }
+
+
+    /**
+     * Forget a sublist that is no longer part of this list
+     */
+    private void drop(RingList<E> array) {
+        if (shared != null)
+            shared.remove(array);
+    }
+
+
+    /**
+     * Throw away a sublist this list no longer uses. Unless a snapshot or
+     * clone may still be reading it, it goes back to the chunk pool.
+     */
+    private void discard(RingList<E> array) {
+        if (shared != null && shared.remove(array))
+            return;
+        if (pool != null)
+            pool.recycle(array, chunkCapacity());
+    }
+
+
+    /**
+     * Mark those of the given sublists of another list that it shares as
+     * shared by this list as well, before they are moved here
+     */
+    private void inheritShared(QuickLinkedList<E> from, List<RingList<E>> chunks) {
+        if (from.shared == null)
+            return;
+        if (shared == null)
+            shared = Collections.newSetFromMap(new IdentityHashMap<RingList<E>, Boolean>());
+        for (RingList<E> array : chunks)
+            if (from.shared.contains(array))
+                shared.add(array);
+    }
+
+
+    /**
+     * Append a sublist to the end of the list of sublists
+     */
+    private void addChunk(RingList<E> array) {
+        list.add(array);
+        index.add(array.size());
+    }
+
+
+    /**
+     * List iterator holding a (sublist, offset) cursor. next and previous move
+     * the cursor inside the current sublist and step to the neighbouring
+     * sublist at its ends; set, add and remove work on the current sublist
+     * and only look the position up again if the sublists were split or merged.
+     */
+    private class Itr implements ListIterator<E> {
+
+        // cursor: index of the element returned by the next call to next()
+        // lastRet: index of the element returned by the last call to next or
+        //          previous, -1 if reset by a call to add or remove
+        private int cursor, lastRet = -1;
+
+        // position of cursor: sublist number and offset inside it
+        private int chunk, offset;
+
+        // position of lastRet
+        private int lastChunk, lastOffset;
+
+        private int expectedModCount = modCount, expectedReshapes = reshapes;
+
+        Itr(int index) {
+            seek(index);
+        }
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public E next() {
+            checkForComodification();
+            if (cursor >= size)
+                throw new NoSuchElementException();
+
+            RingList<E> array = list.get(chunk);
+            while (offset >= array.size()) {
+                array = list.get(++chunk);
+                offset = 0;
+            }
+            lastChunk = chunk;
+            lastOffset = offset++;
+            lastRet = cursor++;
+            return array.get(lastOffset);
+        }
+
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        public E previous() {
+            checkForComodification();
+            if (cursor <= 0)
+                throw new NoSuchElementException();
+
+            while (offset == 0)
+                offset = list.get(--chunk).size();
+            lastChunk = chunk;
+            lastOffset = --offset;
+            lastRet = --cursor;
+            return list.get(chunk).get(offset);
+        }
+
+        public int nextIndex() {
+            return cursor;
+        }
+
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            RingList<E> array = writable(lastChunk);
+            E removed = array.remove(lastOffset);
+            index.update(lastChunk, -1);
+            if (values != null)
+                values.remove(removed, array);
+            size--;
+            modCount++;
+
+            if (lastRet < cursor) {
+                cursor--;
+                offset--;
+            }
+            if (tuner != null && tuner.insert())
+                tune();
+            if (rebalance(lastChunk))
+                seek(cursor);
+            lastRet = -1;
+            expectedModCount = modCount;
+            expectedReshapes = reshapes;
+        }
+
+        public void set(E e) {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            RingList<E> array = writable(lastChunk);
+            E current = array.set(lastOffset, e);
+            if (values != null) {
+                values.remove(current, array);
+                values.add(e, array);
+            }
+        }
+
+        public void add(E e) {
+            checkForComodification();
+
+            RingList<E> array = writable(chunk);
+            array.add(offset, e);
+            index.update(chunk, 1);
+            if (values != null)
+                values.add(e, array);
+            size++;
+            modCount++;
+
+            cursor++;
+            offset++;
+            if (tuner != null && tuner.insert())
+                tune();
+            if (rebalance(chunk))
+                seek(cursor);
+            lastRet = -1;
+            expectedModCount = modCount;
+            expectedReshapes = reshapes;
+        }
+
+        // move the cursor to the given index
+        private void seek(int i) {
+            cursor = i;
+            if (i == size) {
+                chunk = list.size() - 1;
+                offset = list.get(chunk).size();
+            }
+            else {
+                long pos = locate(i);
+                chunk = ChunkIndex.chunk(pos);
+                offset = ChunkIndex.offset(pos);
+            }
+        }
+
+        // fail if the list was changed other than by evening out its
+        // sublists, and find the cursor again if it was
+        private void checkForComodification() {
+            if (modCount == expectedModCount)
+                return;
+            if (modCount - expectedModCount != reshapes - expectedReshapes)
+                throw new ConcurrentModificationException();
+            expectedModCount = modCount;
+            expectedReshapes = reshapes;
+            seek(cursor);
+            if (lastRet >= 0) {
+                long pos = locate(lastRet);
+                lastChunk = ChunkIndex.chunk(pos);
+                lastOffset = ChunkIndex.offset(pos);
+            }
+        }
+    }
+
+
+    /**
+     * View of the range [offset, offset + size) of this list. Nested views keep
+     * a parent so that a change through one of them updates the sizes of all
+     * enclosing views, but every access goes straight to this list.
+     */
+    private class SubList extends AbstractList<E> {
+
+        private final SubList parent;
+        private final int offset;
+        private int size, expectedReshapes;
+
+        SubList(SubList parent, int offset, int size) {
+            this.parent = parent;
+            this.offset = offset;
+            this.size = size;
+            this.modCount = QuickLinkedList.this.modCount;
+            this.expectedReshapes = reshapes;
+        }
+
+        public E get(int index) {
+            rangeCheck(index);
+            checkForComodification();
+            return QuickLinkedList.this.get(offset + index);
+        }
+
+        public E set(int index, E element) {
+            rangeCheck(index);
+            checkForComodification();
+            return QuickLinkedList.this.set(offset + index, element);
+        }
+
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        public void add(int index, E element) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException();
+            checkForComodification();
+            QuickLinkedList.this.add(offset + index, element);
+            updateSizeAndModCount(1);
+        }
+
+        public E remove(int index) {
+            rangeCheck(index);
+            checkForComodification();
+            E removed = QuickLinkedList.this.remove(offset + index);
+            updateSizeAndModCount(-1);
+            return removed;
+        }
+
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            QuickLinkedList.this.removeRange(offset + fromIndex, offset + toIndex);
+            updateSizeAndModCount(fromIndex - toIndex);
+        }
+
+        public boolean addAll(Collection<? extends E> c) {
+            return addAll(size, c);
+        }
+
+        public boolean addAll(int index, Collection<? extends E> c) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException();
+            checkForComodification();
+            int before = QuickLinkedList.this.size;
+            QuickLinkedList.this.addAll(offset + index, c);
+            int added = QuickLinkedList.this.size - before;
+            if (added == 0)
+                return false;
+            updateSizeAndModCount(added);
+            return true;
+        }
+
+        public Iterator<E> iterator() {
+            return listIterator();
+        }
+
+        public ListIterator<E> listIterator(final int index) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException();
+            checkForComodification();
+
+            return new ListIterator<E>() {
+                private final Itr it = new Itr(offset + index);
+
+                public boolean hasNext() {
+                    return nextIndex() < size;
+                }
+
+                public E next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    return it.next();
+                }
+
+                public boolean hasPrevious() {
+                    return previousIndex() >= 0;
+                }
+
+                public E previous() {
+                    if (!hasPrevious())
+                        throw new NoSuchElementException();
+                    return it.previous();
+                }
+
+                public int nextIndex() {
+                    return it.nextIndex() - offset;
+                }
+
+                public int previousIndex() {
+                    return it.previousIndex() - offset;
+                }
+
+                public void remove() {
+                    it.remove();
+                    updateSizeAndModCount(-1);
+                }
+
+                public void set(E e) {
+                    it.set(e);
+                }
+
+                public void add(E e) {
+                    it.add(e);
+                    updateSizeAndModCount(1);
+                }
+            };
+        }
+
+        public List<E> subList(int fromIndex, int toIndex) {
+            subListRangeCheck(fromIndex, toIndex, size);
+            return new SubList(this, offset + fromIndex, toIndex - fromIndex);
+        }
+
+        private void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException();
+        }
+
+        // the view works by index, so evening out the sublists of the
+        // list leaves it valid
+        private void checkForComodification() {
+            int changes = QuickLinkedList.this.modCount - this.modCount;
+            if (changes != reshapes - expectedReshapes)
+                throw new ConcurrentModificationException();
+            this.modCount = QuickLinkedList.this.modCount;
+            expectedReshapes = reshapes;
+        }
+
+        private void updateSizeAndModCount(int delta) {
+            SubList view = this;
+            do {
+                view.size += delta;
+                view.modCount = QuickLinkedList.this.modCount;
+                view.expectedReshapes = reshapes;
+                view = view.parent;
+            } while (view != null);
+        }
+    }
+
+
+    /**
+     * View of a list in reverse order, see reversed(). Index i of the view
+     * is index size() - 1 - i of the list, and each end of the view is the
+     * other end of the list.
+     */
+    public static final class Reversed<E> extends AbstractList<E> implements Deque<E> {
+
+        private final QuickLinkedList<E> list;
+
+        Reversed(QuickLinkedList<E> list) {
+            this.list = list;
+        }
+
+        /**
+         * Returns the list this is a view of, in its own order.
+         * @return the list this view reverses.
+         */
+        public QuickLinkedList<E> reversed() {
+            return list;
+        }
+
+        public int size() {
+            return list.size();
+        }
+
+        public E get(int index) {
+            return list.get(flip(index));
+        }
+
+        public E set(int index, E element) {
+            return list.set(flip(index), element);
+        }
+
+        public void add(int index, E element) {
+            if (index > size() || index < 0)
+                throw new IndexOutOfBoundsException();
+            list.add(size() - index, element);
+        }
+
+        public E remove(int index) {
+            return list.remove(flip(index));
+        }
+
+        public boolean add(E e) {
+            list.addFirst(e);
+            return true;
+        }
+
+        public void clear() {
+            list.clear();
+        }
+
+        public boolean contains(Object o) {
+            return list.contains(o);
+        }
+
+        public boolean remove(Object o) {
+            return list.removeLastOccurrence(o);
+        }
+
+        public Iterator<E> iterator() {
+            return list.descendingIterator();
+        }
+
+        public Iterator<E> descendingIterator() {
+            return list.iterator();
+        }
+
+        public void addFirst(E e) {
+            list.addLast(e);
+        }
+
+        public void addLast(E e) {
+            list.addFirst(e);
+        }
+
+        public boolean offerFirst(E e) {
+            return list.offerLast(e);
+        }
+
+        public boolean offerLast(E e) {
+            return list.offerFirst(e);
+        }
+
+        public E removeFirst() {
+            return list.removeLast();
+        }
+
+        public E removeLast() {
+            return list.removeFirst();
+        }
+
+        public E pollFirst() {
+            return list.pollLast();
+        }
+
+        public E pollLast() {
+            return list.pollFirst();
+        }
+
+        public E getFirst() {
+            return list.getLast();
+        }
+
+        public E getLast() {
+            return list.getFirst();
+        }
+
+        public E peekFirst() {
+            return list.peekLast();
+        }
+
+        public E peekLast() {
+            return list.peekFirst();
+        }
+
+        public boolean removeFirstOccurrence(Object o) {
+            return list.removeLastOccurrence(o);
+        }
+
+        public boolean removeLastOccurrence(Object o) {
+            return list.removeFirstOccurrence(o);
+        }
+
+        public boolean offer(E e) {
+            return offerLast(e);
+        }
+
+        public E remove() {
+            return removeFirst();
+        }
+
+        public E poll() {
+            return pollFirst();
+        }
+
+        public E element() {
+            return getFirst();
+        }
+
+        public E peek() {
+            return peekFirst();
+        }
+
+        public void push(E e) {
+            addFirst(e);
+        }
+
+        public E pop() {
+            return removeFirst();
+        }
+
+        // index in the list of index i of the view
+        private int flip(int index) {
+            if (index >= size() || index < 0)
+                throw new IndexOutOfBoundsException();
+            return size() - 1 - index;
+        }
+    }
+
+
+    /**
+     * Scan of the sublists [lo, hi) for parallelIndexOf. found holds the best
+     * sublist with a match so far: the lowest one, or the highest one when
+     * searching for the last occurrence. Ranges that cannot beat it are
+     * skipped, which stops the search soon after the first match.
+     */
+    private class Search extends RecursiveAction {
+
+        private static final long serialVersionUID = 42L;
+
+        private final Object o;
+        private final boolean last;
+        private final int lo, hi;
+        private final AtomicInteger found;
+
+        Search(Object o, boolean last, int lo, int hi, AtomicInteger found) {
+            this.o = o;
+            this.last = last;
+            this.lo = lo;
+            this.hi = hi;
+            this.found = found;
+        }
+
+        protected void compute() {
+            if (beaten(last ? hi - 1 : lo))
+                return;
+
+            if (hi - lo > 1 && index.offset(hi) - index.offset(lo) > PARALLEL_GRAIN) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Search(o, last, lo, mid, found), new Search(o, last, mid, hi, found));
+                return;
+            }
+
+            for (int i = lo; i < hi; i++) {
+                int k = last ? hi - 1 - i + lo : i;
+                if (beaten(k))
+                    return;
+                if (list.get(k).contains(o)) {
+                    if (last)
+                        found.accumulateAndGet(k, Math::max);
+                    else
+                        found.accumulateAndGet(k, Math::min);
+                    return;
+                }
+            }
+        }
+
+        // true if a match at sublist k would not be better than the one found
+        private boolean beaten(int k) {
+            int best = found.get();
+            return last ? best >= k : best <= k;
+        }
+    }
+
+
+    /**
+     * Sorts the runs [lo, hi) each on its own, splitting the range in two
+     * while it holds more than PARALLEL_GRAIN elements.
+     */
+    private static class SortRuns<E> extends RecursiveAction {
+
+        private static final long serialVersionUID = 42L;
+
+        private final Object[][] runs;
+        private final Comparator<? super E> c;
+        private final int lo, hi;
+
+        SortRuns(Object[][] runs, Comparator<? super E> c, int lo, int hi) {
+            this.runs = runs;
+            this.c = c;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            int n = 0;
+            for (int k = lo; k < hi && n <= PARALLEL_GRAIN; k++)
+                n += runs[k].length;
+            if (hi - lo > 1 && n > PARALLEL_GRAIN) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new SortRuns<E>(runs, c, lo, mid), new SortRuns<E>(runs, c, mid, hi));
+                return;
+            }
+            for (int k = lo; k < hi; k++) {
+                // each run holds elements of the list, copied out by toArray
+                @SuppressWarnings("unchecked")
+                E[] run = (E[])runs[k];
+                Arrays.sort(run, c);
+            }
+        }
+    }
+
+
+    /**
+     * Spliterator over the sublists [chunk, fence), starting at offset inside
+     * the first one. Splitting hands the lower half of the sublists to the new
+     * spliterator; a single sublist is not split further. If the sublists are
+     * evened out while it is in use, it looks its next element up again by
+     * index.
+     */
+    private class ChunkSpliterator implements Spliterator<E> {
+
+        // chunk: current sublist
+        // fence: one past the last sublist, -1 until first use
+        // offset: position of the next element inside the current sublist
+        private int chunk, fence, offset;
+
+        // remaining: number of elements left to traverse
+        // end: index one past the last element to traverse
+        private int remaining, end, expectedModCount, expectedReshapes;
+
+        ChunkSpliterator(int chunk, int fence, int offset, int remaining, int end,
+                         int expectedModCount, int expectedReshapes) {
+            this.chunk = chunk;
+            this.fence = fence;
+            this.offset = offset;
+            this.remaining = remaining;
+            this.end = end;
+            this.expectedModCount = expectedModCount;
+            this.expectedReshapes = expectedReshapes;
+        }
+
+        // bind to the list on first use
+        private int getFence() {
+            if (fence < 0) {
+                fence = list.size();
+                remaining = size;
+                end = size;
+                expectedModCount = modCount;
+                expectedReshapes = reshapes;
+            }
+            return fence;
+        }
+
+        // fail if the list was changed other than by evening out its
+        // sublists, and find the next element again if it was
+        private void checkForComodification() {
+            if (modCount == expectedModCount)
+                return;
+            if (modCount - expectedModCount != reshapes - expectedReshapes)
+                throw new ConcurrentModificationException();
+            expectedModCount = modCount;
+            expectedReshapes = reshapes;
+            if (remaining > 0) {
+                long pos = locate(end - remaining);
+                chunk = ChunkIndex.chunk(pos);
+                offset = ChunkIndex.offset(pos);
+                fence = ChunkIndex.chunk(locate(end - 1)) + 1;
+            }
+        }
+
+        public Spliterator<E> trySplit() {
+            getFence();
+            checkForComodification();
+            int hi = fence;
+            if (hi - chunk < 2)
+                return null;
+
+            int mid = (chunk + hi) >>> 1, start = index.offset(mid);
+            int n = start - index.offset(chunk) - offset;
+            Spliterator<E> prefix = new ChunkSpliterator(chunk, mid, offset, n, start,
+                                                         expectedModCount, expectedReshapes);
+            chunk = mid;
+            offset = 0;
+            remaining -= n;
+            return prefix;
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+
+            getFence();
+            checkForComodification();
+            if (remaining == 0)
+                return false;
+
+            RingList<E> array = list.get(chunk);
+            while (offset >= array.size()) {
+                array = list.get(++chunk);
+                offset = 0;
+            }
+            E e = array.get(offset++);
+            remaining--;
+            action.accept(e);
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+
+            getFence();
+            checkForComodification();
+            while (remaining > 0) {
+                RingList<E> array = list.get(chunk);
+                int n = Math.min(array.size(), offset + remaining);
+                while (offset < n && modCount == expectedModCount) {
+                    remaining--;
+                    action.accept(array.get(offset++));
+                }
+                if (modCount != expectedModCount)
+                    checkForComodification();
+                else if (offset >= array.size()) {
+                    chunk++;
+                    offset = 0;
+                }
+            }
+        }
+
+        public long estimateSize() {
+            getFence();
+            return remaining;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+
+    /**
+     * Returns a shallow copy of this list. (The elements themselves are not
+     * copied.) The copy shares its sublists with this list the same way a
+     * snapshot does, and builds its own value index if this list has one.
+     * @return a clone of this list.
+     *
+     */
+    public Object clone() {
+        QuickLinkedList<E> copy = share();
+        copy.setValueIndexed(values != null);
+        return copy;
+    }
+
+
+    /**
+     * Returns a copy of this list that shares its sublists with this list.
+     * Only the list of sublists and their sizes are copied, so this runs in
+     * O(number of sublists) whatever the number of elements. A shared
+     * sublist is copied the first time either list changes it, so changes
+     * to one list are never seen by the other. The snapshot does not keep a
+     * value index.
+     *
+     * Shared sublists are never changed in place, so a snapshot can be
+     * handed to another thread and read there while this list keeps
+     * changing, as long as the snapshot itself is not modified.
+     * @return a snapshot of this list.
+     */
+    public QuickLinkedList<E> snapshot() {
+        return share();
+    }
+
+
+    /**
+     * Copy this list, sharing every sublist between the two
+     */
+    private QuickLinkedList<E> share() {
+        QuickLinkedList<E> copy;
         try {
-            return super.clone();
-        } catch(Exception e) {
-            return null;
+            @SuppressWarnings("unchecked")
+            QuickLinkedList<E> clone = (QuickLinkedList<E>)super.clone();
+            copy = clone;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+
+        if (shared == null)
+            shared = Collections.newSetFromMap(new IdentityHashMap<RingList<E>, Boolean>());
+        shared.addAll(list);
+        copy.shared = Collections.newSetFromMap(new IdentityHashMap<RingList<E>, Boolean>());
+        copy.shared.addAll(list);
+        copy.list = new RingList<RingList<E>>(list.size());
+        copy.list.addAll(list);
+        copy.index = index.copy();
+        copy.values = null;
+        copy.tuner = tuner == null ? null : new FragmentTuner();
+        copy.stats = null;
+        copy.modCount = 0;
+        return copy;
+    }
+
+
+    /**
+     * Save the list to a stream: size and fragment, whether the value index
+     * and adaptive sizing are on, then the elements in order, sublist by sublist. Neither the
+     * sublists nor the indexes are written; readObject rebuilds them.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+        s.writeBoolean(values != null);
+        s.writeBoolean(tuner != null);
+        for (RingList<E> array : list)
+            for (int i = 0; i < array.size(); i++)
+                s.writeObject(array.get(i));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+
+    /**
+     * Rebuild the list from a stream written by writeObject, in sublists
+     * of the fragment size.
+     */
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        boolean indexed = s.readBoolean();
+        boolean adaptive = s.readBoolean();
+        list = new RingList<RingList<E>>(16);
+        index = new ChunkIndex();
+
+        int step = Math.max(fragment, 1);
+        for (int i = 0; i < size; i += step) {
+            int n = Math.min(step, size - i);
+            RingList<E> array = newChunk();
+            for (int j = 0; j < n; j++) {
+                @SuppressWarnings("unchecked")
+                E e = (E)s.readObject();
+                array.add(e);
+            }
+            addChunk(array);
         }
+        if (list.isEmpty())
+            addChunk(newChunk());
+        setValueIndexed(indexed);
+        setAdaptive(adaptive);
     }
 
 
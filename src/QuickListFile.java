@@ -0,0 +1,444 @@
+/**
+ * QuickListFile reads and writes chunked lists in a compact binary format,
+ * for checkpointing large lists to disk much faster than Java serialization.
+ * Elements are encoded with a fixed-width Codec; QuickIntList, QuickLongList
+ * and QuickDoubleList are written and read in bulk straight from their
+ * sublist arrays.
+ *
+ * The format, all little-endian:
+ *
+ *   header (40 bytes)
+ *     int  magic "QLST"
+ *     int  version
+ *     int  width of an element in bytes
+ *     int  fragment size of the list
+ *     long number of elements
+ *     int  number of chunks
+ *     int  reserved, 0
+ *     long file offset of the chunk directory
+ *
+ *   directory, one 16 byte entry per chunk in list order
+ *     long file offset of the chunk
+ *     int  number of elements in the chunk
+ *     int  number of elements the chunk has room for
+ *
+ *   chunks, each holding its elements back to back
+ *
+ * The writers here lay the chunks out full and contiguous right after the
+ * directory, but readers only rely on the directory, so chunks may be
+ * anywhere in the file and have room to spare.
+ *
+ * A list is written at the start of the channel, which is then truncated
+ * to the end of the list. Force the channel for durability.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+public final class QuickListFile {
+
+
+    static final int MAGIC = 0x54534C51; // "QLST" in little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 40;
+    static final int ENTRY_BYTES = 16;
+
+    // size of the buffer elements are encoded into before writing
+    private static final int BUFFER_BYTES = 1 << 20;
+
+
+    private QuickListFile() {
+    }
+
+
+    /**
+     * Header and chunk directory of a file
+     */
+    static final class Directory {
+
+        int width, fragment, size, chunks;
+        long directory;
+        long[] offsets;
+        int[] counts, capacities;
+
+        Directory(int width, int fragment, int chunks) {
+            this.width = width;
+            this.fragment = fragment;
+            this.chunks = chunks;
+            offsets = new long[chunks];
+            counts = new int[chunks];
+            capacities = new int[chunks];
+        }
+
+
+        /**
+         * Read the header and directory of a file holding elements of the
+         * given width
+         */
+        static Directory read(FileChannel in, int width) throws IOException {
+            ByteBuffer header = readFully(in, allocate(HEADER_BYTES), 0);
+            if (header.getInt(0) != MAGIC)
+                throw new IOException("not a QuickListFile");
+            if (header.getInt(4) != VERSION)
+                throw new IOException("unsupported version " + header.getInt(4));
+            if (header.getInt(8) != width)
+                throw new IOException("element width is " + header.getInt(8) + ", not " + width);
+            long size = header.getLong(16);
+            int chunks = header.getInt(24);
+            if (size < 0 || size > Integer.MAX_VALUE || chunks < 0)
+                throw new IOException("corrupt header");
+
+            Directory dir = new Directory(width, header.getInt(12), chunks);
+            dir.size = (int)size;
+            dir.directory = header.getLong(32);
+            ByteBuffer entries = readFully(in, allocate(chunks * ENTRY_BYTES), dir.directory);
+            long total = 0;
+            for (int c = 0; c < chunks; c++) {
+                dir.offsets[c] = entries.getLong(c * ENTRY_BYTES);
+                dir.counts[c] = entries.getInt(c * ENTRY_BYTES + 8);
+                dir.capacities[c] = entries.getInt(c * ENTRY_BYTES + 12);
+                if (dir.counts[c] < 0 || dir.counts[c] > dir.capacities[c])
+                    throw new IOException("corrupt chunk " + c);
+                total += dir.counts[c];
+            }
+            if (total != size)
+                throw new IOException("corrupt directory");
+            return dir;
+        }
+
+
+        /**
+         * Write the directory at the given offset, then the header pointing
+         * to it
+         */
+        void write(FileChannel out, long directory) throws IOException {
+            ByteBuffer entries = allocate(chunks * ENTRY_BYTES);
+            for (int c = 0; c < chunks; c++) {
+                entries.putLong(c * ENTRY_BYTES, offsets[c]);
+                entries.putInt(c * ENTRY_BYTES + 8, counts[c]);
+                entries.putInt(c * ENTRY_BYTES + 12, capacities[c]);
+            }
+            writeFully(out, entries, directory);
+            this.directory = directory;
+
+            ByteBuffer header = allocate(HEADER_BYTES);
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, width).putInt(12, fragment);
+            header.putLong(16, size).putInt(24, chunks).putInt(28, 0).putLong(32, directory);
+            writeFully(out, header, 0);
+        }
+
+
+        /**
+         * Lay out size elements as full chunks of the fragment size placed
+         * back to back right after the directory
+         */
+        static Directory contiguous(int width, int fragment, int size) {
+            int step = Math.max(fragment, 1);
+            Directory dir = new Directory(width, fragment, (int)(((long)size + step - 1) / step));
+            dir.size = size;
+            long pos = HEADER_BYTES + (long)dir.chunks * ENTRY_BYTES;
+            for (int c = 0; c < dir.chunks; c++) {
+                dir.counts[c] = dir.capacities[c] = Math.min(step, size - c * step);
+                dir.offsets[c] = pos;
+                pos += (long)dir.counts[c] * width;
+            }
+            return dir;
+        }
+
+
+        /**
+         * File offset right after the last chunk written by contiguous
+         */
+        long end() {
+            return HEADER_BYTES + (long)chunks * ENTRY_BYTES + (long)size * width;
+        }
+
+
+        /**
+         * Read the elements of chunk c into buf, which is grown if needed,
+         * and return it flipped
+         */
+        ByteBuffer load(FileChannel in, int c, ByteBuffer buf) throws IOException {
+            int bytes = counts[c] * width;
+            if (buf == null || buf.capacity() < bytes)
+                buf = allocate(Math.max(bytes, BUFFER_BYTES));
+            buf.clear().limit(bytes);
+            return readFully(in, buf, offsets[c]);
+        }
+    }
+
+
+    /**
+     * Write a list to the start of the channel, encoding its elements with
+     * the given codec.
+     * @param list list to write.
+     * @param codec codec for the elements.
+     * @param out channel to write to.
+     * @throws IOException if the channel cannot be written.
+     */
+    public static <E> void write(QuickLinkedList<E> list, Codec<E> codec, FileChannel out) throws IOException {
+        int width = codec.width();
+        Directory dir = Directory.contiguous(width, list.getSublistSize(), list.size());
+        dir.write(out, HEADER_BYTES);
+
+        long pos = HEADER_BYTES + (long)dir.chunks * ENTRY_BYTES;
+        ByteBuffer buf = allocate(BUFFER_BYTES / width * width);
+        for (E e : list) {
+            if (buf.remaining() < width) {
+                buf.flip();
+                pos += writeFully(out, buf, pos);
+                buf.clear();
+            }
+            codec.write(buf, buf.position(), e);
+            buf.position(buf.position() + width);
+        }
+        buf.flip();
+        writeFully(out, buf, pos);
+        out.truncate(dir.end());
+    }
+
+
+    /**
+     * Read a list written with the given codec.
+     * @param in channel to read from, starting at its beginning.
+     * @param codec codec for the elements.
+     * @return a new list holding the elements read.
+     * @throws IOException if the channel cannot be read or does not hold
+     *         a list of elements of the codec's width.
+     */
+    public static <E> QuickLinkedList<E> read(FileChannel in, Codec<E> codec) throws IOException {
+        int width = codec.width();
+        Directory dir = Directory.read(in, width);
+        QuickLinkedList<E> list = new QuickLinkedList<E>(Math.max(dir.fragment, 0));
+
+        ByteBuffer buf = null;
+        for (int c = 0; c < dir.chunks; c++) {
+            buf = dir.load(in, c, buf);
+            ArrayList<E> a = new ArrayList<E>(dir.counts[c]);
+            for (int i = 0; i < dir.counts[c]; i++)
+                a.add(codec.read(buf, i * width));
+            list.addAll(a);
+        }
+        return list;
+    }
+
+
+    /**
+     * Write an int list to the start of the channel, copying its sublists
+     * in bulk.
+     * @param list list to write.
+     * @param out channel to write to.
+     * @throws IOException if the channel cannot be written.
+     */
+    public static void write(QuickIntList list, FileChannel out) throws IOException {
+        Directory dir = Directory.contiguous(4, list.getSublistSize(), list.size());
+        dir.write(out, HEADER_BYTES);
+
+        long pos = HEADER_BYTES + (long)dir.chunks * ENTRY_BYTES;
+        ByteBuffer buf = allocate(BUFFER_BYTES);
+        for (int k = 0; k < list.chunkCount(); k++) {
+            int[] array = list.chunk(k);
+            for (int i = 0, n = list.chunkSize(k); i < n; ) {
+                int m = Math.min(n - i, buf.remaining() / 4);
+                buf.asIntBuffer().put(array, i, m);
+                buf.position(buf.position() + m * 4);
+                i += m;
+                if (!buf.hasRemaining()) {
+                    buf.flip();
+                    pos += writeFully(out, buf, pos);
+                    buf.clear();
+                }
+            }
+        }
+        buf.flip();
+        writeFully(out, buf, pos);
+        out.truncate(dir.end());
+    }
+
+
+    /**
+     * Read an int list, copying the chunks in bulk.
+     * @param in channel to read from, starting at its beginning.
+     * @return a new list holding the values read.
+     * @throws IOException if the channel cannot be read or does not hold
+     *         a list of 4 byte values.
+     */
+    public static QuickIntList readIntList(FileChannel in) throws IOException {
+        Directory dir = Directory.read(in, 4);
+        QuickIntList list = new QuickIntList(Math.max(dir.fragment, 0));
+        int step = Math.max(dir.fragment, 1);
+
+        ByteBuffer buf = null;
+        for (int c = 0; c < dir.chunks; c++) {
+            buf = dir.load(in, c, buf);
+            for (int i = 0; i < dir.counts[c]; i += step) {
+                int[] array = new int[Math.min(step, dir.counts[c] - i)];
+                buf.position(i * 4);
+                buf.asIntBuffer().get(array);
+                list.appendChunk(array, array.length);
+            }
+        }
+        return list;
+    }
+
+
+    /**
+     * Write a long list to the start of the channel, copying its sublists
+     * in bulk.
+     * @param list list to write.
+     * @param out channel to write to.
+     * @throws IOException if the channel cannot be written.
+     */
+    public static void write(QuickLongList list, FileChannel out) throws IOException {
+        Directory dir = Directory.contiguous(8, list.getSublistSize(), list.size());
+        dir.write(out, HEADER_BYTES);
+
+        long pos = HEADER_BYTES + (long)dir.chunks * ENTRY_BYTES;
+        ByteBuffer buf = allocate(BUFFER_BYTES);
+        for (int k = 0; k < list.chunkCount(); k++) {
+            long[] array = list.chunk(k);
+            for (int i = 0, n = list.chunkSize(k); i < n; ) {
+                int m = Math.min(n - i, buf.remaining() / 8);
+                buf.asLongBuffer().put(array, i, m);
+                buf.position(buf.position() + m * 8);
+                i += m;
+                if (!buf.hasRemaining()) {
+                    buf.flip();
+                    pos += writeFully(out, buf, pos);
+                    buf.clear();
+                }
+            }
+        }
+        buf.flip();
+        writeFully(out, buf, pos);
+        out.truncate(dir.end());
+    }
+
+
+    /**
+     * Read a long list, copying the chunks in bulk.
+     * @param in channel to read from, starting at its beginning.
+     * @return a new list holding the values read.
+     * @throws IOException if the channel cannot be read or does not hold
+     *         a list of 8 byte values.
+     */
+    public static QuickLongList readLongList(FileChannel in) throws IOException {
+        Directory dir = Directory.read(in, 8);
+        QuickLongList list = new QuickLongList(Math.max(dir.fragment, 0));
+        int step = Math.max(dir.fragment, 1);
+
+        ByteBuffer buf = null;
+        for (int c = 0; c < dir.chunks; c++) {
+            buf = dir.load(in, c, buf);
+            for (int i = 0; i < dir.counts[c]; i += step) {
+                long[] array = new long[Math.min(step, dir.counts[c] - i)];
+                buf.position(i * 8);
+                buf.asLongBuffer().get(array);
+                list.appendChunk(array, array.length);
+            }
+        }
+        return list;
+    }
+
+
+    /**
+     * Write a double list to the start of the channel, copying its sublists
+     * in bulk.
+     * @param list list to write.
+     * @param out channel to write to.
+     * @throws IOException if the channel cannot be written.
+     */
+    public static void write(QuickDoubleList list, FileChannel out) throws IOException {
+        Directory dir = Directory.contiguous(8, list.getSublistSize(), list.size());
+        dir.write(out, HEADER_BYTES);
+
+        long pos = HEADER_BYTES + (long)dir.chunks * ENTRY_BYTES;
+        ByteBuffer buf = allocate(BUFFER_BYTES);
+        for (int k = 0; k < list.chunkCount(); k++) {
+            double[] array = list.chunk(k);
+            for (int i = 0, n = list.chunkSize(k); i < n; ) {
+                int m = Math.min(n - i, buf.remaining() / 8);
+                buf.asDoubleBuffer().put(array, i, m);
+                buf.position(buf.position() + m * 8);
+                i += m;
+                if (!buf.hasRemaining()) {
+                    buf.flip();
+                    pos += writeFully(out, buf, pos);
+                    buf.clear();
+                }
+            }
+        }
+        buf.flip();
+        writeFully(out, buf, pos);
+        out.truncate(dir.end());
+    }
+
+
+    /**
+     * Read a double list, copying the chunks in bulk.
+     * @param in channel to read from, starting at its beginning.
+     * @return a new list holding the values read.
+     * @throws IOException if the channel cannot be read or does not hold
+     *         a list of 8 byte values.
+     */
+    public static QuickDoubleList readDoubleList(FileChannel in) throws IOException {
+        Directory dir = Directory.read(in, 8);
+        QuickDoubleList list = new QuickDoubleList(Math.max(dir.fragment, 0));
+        int step = Math.max(dir.fragment, 1);
+
+        ByteBuffer buf = null;
+        for (int c = 0; c < dir.chunks; c++) {
+            buf = dir.load(in, c, buf);
+            for (int i = 0; i < dir.counts[c]; i += step) {
+                double[] array = new double[Math.min(step, dir.counts[c] - i)];
+                buf.position(i * 8);
+                buf.asDoubleBuffer().get(array);
+                list.appendChunk(array, array.length);
+            }
+        }
+        return list;
+    }
+
+
+    static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    /**
+     * Fill the rest of buf from the channel starting at pos, and return
+     * it rewound to where it started
+     */
+    static ByteBuffer readFully(FileChannel in, ByteBuffer buf, long pos) throws IOException {
+        int start = buf.position();
+        while (buf.hasRemaining()) {
+            int n = in.read(buf, pos);
+            if (n < 0)
+                throw new EOFException();
+            pos += n;
+        }
+        buf.position(start);
+        return buf;
+    }
+
+
+    /**
+     * Write the rest of buf to the channel starting at pos, and return the
+     * number of bytes written
+     */
+    static int writeFully(FileChannel out, ByteBuffer buf, long pos) throws IOException {
+        int bytes = buf.remaining();
+        while (buf.hasRemaining())
+            pos += out.write(buf, pos);
+        return bytes;
+    }
+
+
+//End
+}
@@ -0,0 +1,307 @@
+/**
+ * RingList is the array list QuickLinkedList keeps its sublists in, and
+ * keeps the list of its sublists in. The elements are stored in a circular
+ * buffer, so the first element can be added or removed in O(1) just like
+ * the last one, and an insert or remove in the middle only shifts the
+ * elements on the shorter side of it.
+ *
+ * Only the operations QuickLinkedList needs are overridden; the rest, such
+ * as iterators and sublists, come from AbstractList and work through them.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+class RingList<E> extends AbstractList<E> implements RandomAccess {
+
+    // elements: circular buffer, unused slots are null
+    // head: slot of the first element
+    private Object[] elements;
+    private int head, size;
+
+    // position in the list of sublists when they were last numbered, a
+    // hint that is out of date once sublists are added or removed before it
+    int position;
+
+
+    RingList(int capacity) {
+        elements = new Object[Math.max(capacity, 1)];
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    // number of elements the list holds before it has to grow
+    int capacity() {
+        return elements.length;
+    }
+
+
+    public E get(int index) {
+        rangeCheck(index);
+        return element(slot(index));
+    }
+
+
+    public E set(int index, E element) {
+        rangeCheck(index);
+        int j = slot(index);
+        E old = element(j);
+        elements[j] = element;
+        return old;
+    }
+
+
+    public boolean add(E e) {
+        ensureCapacity(size + 1);
+        elements[slot(size)] = e;
+        size++;
+        modCount++;
+        return true;
+    }
+
+
+    public void add(int index, E e) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        ensureCapacity(size + 1);
+        if (index < size / 2) {
+            head = head == 0 ? elements.length - 1 : head - 1;
+            move(1, 0, index);
+        }
+        else
+            move(index, index + 1, size - index);
+        elements[slot(index)] = e;
+        size++;
+        modCount++;
+    }
+
+
+    public E remove(int index) {
+        rangeCheck(index);
+
+        E removed = element(slot(index));
+        if (index < size / 2) {
+            move(0, 1, index);
+            elements[head] = null;
+            head = head == elements.length - 1 ? 0 : head + 1;
+        }
+        else {
+            move(index + 1, index, size - index - 1);
+            elements[slot(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size, c);
+    }
+
+
+    public boolean addAll(int index, Collection<? extends E> c) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        Object[] a = c.toArray();
+        int n = a.length;
+        if (n == 0)
+            return false;
+
+        ensureCapacity(size + n);
+        if (index < size - index) {
+            head -= n;
+            if (head < 0)
+                head += elements.length;
+            move(n, 0, index);
+        }
+        else
+            move(index, index + n, size - index);
+        size += n;
+        for (int i = 0; i < n; ) {
+            int j = slot(index + i);
+            int k = Math.min(n - i, elements.length - j);
+            System.arraycopy(a, i, elements, j, k);
+            i += k;
+        }
+        modCount++;
+        return true;
+    }
+
+
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            elements[slot(i)] = null;
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+
+    public int indexOf(Object o) {
+        for (int i = 0; i < size; i++)
+            if (o == null ? elements[slot(i)] == null : o.equals(elements[slot(i)]))
+                return i;
+        return -1;
+    }
+
+
+    public int lastIndexOf(Object o) {
+        for (int i = size - 1; i >= 0; i--)
+            if (o == null ? elements[slot(i)] == null : o.equals(elements[slot(i)]))
+                return i;
+        return -1;
+    }
+
+
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+
+    public Object[] toArray() {
+        Object[] a = new Object[size];
+        int first = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, a, 0, first);
+        System.arraycopy(elements, 0, a, first, size - first);
+        return a;
+    }
+
+
+    public void forEach(Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < size; i++)
+            action.accept(element(slot(i)));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+
+    public void replaceAll(UnaryOperator<E> operator) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < size; i++) {
+            int j = slot(i);
+            elements[j] = operator.apply(element(j));
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+
+    /**
+     * Remove in one pass the elements whose flag is set, keeping the
+     * others in order
+     * @param flags one flag per element, may be longer than the list
+     * @return the number of elements removed
+     */
+    int removeFlagged(boolean[] flags) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!flags[i]) {
+                if (kept != i)
+                    elements[slot(kept)] = elements[slot(i)];
+                kept++;
+            }
+        }
+        for (int i = kept; i < size; i++)
+            elements[slot(i)] = null;
+        int removed = size - kept;
+        size = kept;
+        if (removed > 0)
+            modCount++;
+        return removed;
+    }
+
+
+    /**
+     * Make room for at least the given number of elements
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            Object[] a = toArray();
+            elements = Arrays.copyOf(a, Math.max(capacity, elements.length + (elements.length >> 1)));
+            head = 0;
+        }
+    }
+
+
+    protected void removeRange(int fromIndex, int toIndex) {
+        int n = toIndex - fromIndex;
+        if (n <= 0)
+            return;
+
+        if (fromIndex < size - toIndex) {
+            move(0, n, fromIndex);
+            for (int i = 0; i < n; i++)
+                elements[slot(i)] = null;
+            head = slot(n);
+        }
+        else {
+            move(toIndex, fromIndex, size - toIndex);
+            for (int i = size - n; i < size; i++)
+                elements[slot(i)] = null;
+        }
+        size -= n;
+        modCount++;
+    }
+
+
+    // element in the given buffer slot
+    @SuppressWarnings("unchecked")
+    private E element(int slot) {
+        return (E)elements[slot];
+    }
+
+
+    // buffer slot of the element at the given index, 0 <= index < capacity
+    private int slot(int index) {
+        int j = head + index;
+        return j >= elements.length ? j - elements.length : j;
+    }
+
+
+    // copy the n elements at index src to index dst, overlapping or not,
+    // in runs that do not wrap around the end of the buffer
+    private void move(int src, int dst, int n) {
+        int capacity = elements.length;
+        if (dst < src) {
+            while (n > 0) {
+                int s = slot(src), d = slot(dst);
+                int k = Math.min(n, Math.min(capacity - s, capacity - d));
+                System.arraycopy(elements, s, elements, d, k);
+                src += k;
+                dst += k;
+                n -= k;
+            }
+        }
+        else if (dst > src) {
+            while (n > 0) {
+                int s = slot(src + n - 1), d = slot(dst + n - 1);
+                int k = Math.min(n, Math.min(s, d) + 1);
+                System.arraycopy(elements, s - k + 1, elements, d - k + 1, k);
+                n -= k;
+            }
+        }
+    }
+
+
+    private void rangeCheck(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+//End
+}
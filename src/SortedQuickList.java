@@ -0,0 +1,438 @@
+/**
+ * SortedQuickList is a QuickLinkedList that keeps its elements in order,
+ * by their natural ordering or by a comparator. Since every sublist is
+ * sorted, its first and last elements are its minimum and maximum, so a
+ * search first does a binary search over the sublists by their last
+ * element and then one inside the sublist found: O(log n) comparisons and
+ * no positional lookups. The sublists form the leaf level of a B-tree,
+ * for a few bytes per element on top of the elements themselves.
+ *
+ * Elements are added with add (or insertSorted), which puts them after
+ * any equal ones, so equal elements stay in the order they were added.
+ * Adding a batch of elements that all come after the current last one,
+ * such as a run of time-stamped samples, appends them without searching.
+ * addAll, append and the Queue method offer insert in order the same way,
+ * as a PriorityQueue would. The operations that would put an element at a
+ * chosen position (add and addAll at an index, set, the Deque methods
+ * addFirst, addLast, offerFirst, offerLast and push, sort, replaceAll and
+ * the set and add of list iterators) throw UnsupportedOperationException.
+ * Removing elements, by index, value, range or filter, is allowed.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+public class SortedQuickList<E> extends QuickLinkedList<E> {
+
+    // order of the elements, null for their natural ordering
+    private final Comparator<? super E> comparator;
+
+    public static final long serialVersionUID = 42L;
+
+
+    /**
+     * Construct an empty list sorted by the natural ordering of its
+     * elements, with the default sublist size of 1000
+     */
+    public SortedQuickList() {
+        this(1000, null);
+    }
+
+
+    /**
+     * Construct an empty list sorted by the given comparator, with the
+     * default sublist size of 1000
+     * @param comparator the order of the elements, null for natural ordering.
+     */
+    public SortedQuickList(Comparator<? super E> comparator) {
+        this(1000, comparator);
+    }
+
+
+    /**
+     * Construct an empty list sorted by the given comparator
+     * @param fragment size of the sublists.
+     * @param comparator the order of the elements, null for natural ordering.
+     * @throws IllegalArgumentException if fragment is negative.
+     */
+    public SortedQuickList(int fragment, Comparator<? super E> comparator) {
+        super(fragment);
+        this.comparator = comparator;
+    }
+
+
+    /**
+     * Construct a list holding the elements of the given collection, sorted
+     * by the given comparator
+     * @param c the elements to be placed into this list.
+     * @param comparator the order of the elements, null for natural ordering.
+     * @throws NullPointerException if the specified collection is null.
+     */
+    public SortedQuickList(Collection<? extends E> c, Comparator<? super E> comparator) {
+        this(1000, comparator);
+        addAll(c);
+    }
+
+
+    /**
+     * Returns the comparator ordering this list.
+     * @return the comparator, or null if the natural ordering is used.
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+
+    /**
+     * Inserts the element in order, after any elements equal to it.
+     * @param e element to be inserted.
+     * @return the index the element was inserted at.
+     */
+    public int insertSorted(E e) {
+        int i = bound(e, true);
+        if (i == size())
+            super.add(e);
+        else
+            super.add(i, e);
+        return i;
+    }
+
+
+    /**
+     * Inserts the element in order, see insertSorted.
+     * @param e element to be inserted.
+     * @return true (as per the general contract of Collection.add).
+     */
+    public boolean add(E e) {
+        insertSorted(e);
+        return true;
+    }
+
+
+    /**
+     * Inserts all of the elements of the collection in order. If they all
+     * come after the last element of this list, they are sorted and
+     * appended in one go.
+     * @param c the elements to be inserted into this list.
+     * @return true if this list changed as a result of the call.
+     * @throws NullPointerException if the specified collection is null.
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        E[] a = elementsOf(c);
+        if (a.length == 0)
+            return false;
+
+        Arrays.sort(a, comparator);
+        if (isEmpty() || compare(a[0], getLast()) >= 0)
+            return super.addAll(Arrays.asList(a));
+        for (E e : a)
+            insertSorted(e);
+        return true;
+    }
+
+
+    /**
+     * Moves all of the elements of another list into this one, inserting
+     * them in order. The other list is empty after this call returns.
+     * @param other list whose elements are moved to this list.
+     * @throws IllegalArgumentException if other is this list.
+     */
+    public void append(QuickLinkedList<E> other) {
+        if (other == this)
+            throw new IllegalArgumentException();
+        addAll(other);
+        other.clear();
+    }
+
+
+    /**
+     * Searches for an element comparing equal to the key.
+     * @param key the value to search for.
+     * @return the index of such an element if there is one; otherwise
+     *         (-(insertion point) - 1), where the insertion point is the
+     *         index of the first element greater than the key, or size()
+     *         if there is none.
+     */
+    public int binarySearch(E key) {
+        int i = bound(key, false);
+        if (i < size() && compare(get(i), key) == 0)
+            return i;
+        return -i - 1;
+    }
+
+
+    /**
+     * Returns the greatest element less than or equal to the given one.
+     * @param e the value to match.
+     * @return the greatest element less than or equal to e, or null if there is none.
+     */
+    public E floor(E e) {
+        int i = bound(e, true) - 1;
+        return i >= 0 ? get(i) : null;
+    }
+
+
+    /**
+     * Returns the least element greater than or equal to the given one.
+     * @param e the value to match.
+     * @return the least element greater than or equal to e, or null if there is none.
+     */
+    public E ceiling(E e) {
+        int i = bound(e, false);
+        return i < size() ? get(i) : null;
+    }
+
+
+    /**
+     * Returns the greatest element strictly less than the given one.
+     * @param e the value to match.
+     * @return the greatest element less than e, or null if there is none.
+     */
+    public E lower(E e) {
+        int i = bound(e, false) - 1;
+        return i >= 0 ? get(i) : null;
+    }
+
+
+    /**
+     * Returns the least element strictly greater than the given one.
+     * @param e the value to match.
+     * @return the least element greater than e, or null if there is none.
+     */
+    public E higher(E e) {
+        int i = bound(e, true);
+        return i < size() ? get(i) : null;
+    }
+
+
+    /**
+     * Returns a view of the elements from fromElement, inclusive, to
+     * toElement, exclusive. The view is found in O(log n) and, like
+     * subList, can be iterated and cleared.
+     * @param fromElement low endpoint (inclusive) of the range.
+     * @param toElement high endpoint (exclusive) of the range.
+     * @return a view of the elements in the range.
+     * @throws IllegalArgumentException if fromElement is greater than toElement.
+     */
+    public List<E> range(E fromElement, E toElement) {
+        if (compare(fromElement, toElement) > 0)
+            throw new IllegalArgumentException("fromElement > toElement");
+        return subList(bound(fromElement, false), bound(toElement, false));
+    }
+
+
+    /**
+     * Returns a view of the portion of this list between fromIndex, inclusive,
+     * and toIndex, exclusive. Elements can be read and removed through the
+     * view, but not set or added.
+     * @param fromIndex low endpoint (inclusive) of the subList.
+     * @param toIndex high endpoint (exclusive) of the subList.
+     * @return a view of the specified range within this list.
+     * @throws IndexOutOfBoundsException for an illegal endpoint index value.
+     */
+    public List<E> subList(int fromIndex, int toIndex) {
+        return new Range<E>(super.subList(fromIndex, toIndex));
+    }
+
+
+    /**
+     * Returns a list iterator that can remove elements, but not set or add them.
+     * @return a list iterator over the elements in this list in order.
+     */
+    public ListIterator<E> listIterator() {
+        return listIterator(0);
+    }
+
+
+    /**
+     * Returns a list iterator that can remove elements, but not set or add them.
+     * @param index index of the first element to be returned by next.
+     * @return a list iterator starting at the specified position.
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index > size()).
+     */
+    public ListIterator<E> listIterator(int index) {
+        return removeOnly(super.listIterator(index));
+    }
+
+
+    public void add(int index, E element) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public boolean addAll(int index, Collection<? extends E> c) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public E set(int index, E element) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public void addFirst(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public void addLast(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public boolean offerFirst(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public boolean offerLast(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public void push(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public void sort(Comparator<? super E> c) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    public void replaceAll(UnaryOperator<E> operator) {
+        throw new UnsupportedOperationException();
+    }
+
+
+    /**
+     * Return the index of the first element greater than key, or greater
+     * than or equal to it if not after. The sublist is picked by a binary
+     * search over the last element of each, then the element by one inside it.
+     */
+    private int bound(E key, boolean after) {
+        int lo = 0, hi = chunkCount() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            List<E> array = chunk(mid);
+            if (array.isEmpty() || !beyond(array.get(array.size() - 1), key, after))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        List<E> array = chunk(lo);
+        int from = 0, to = array.size();
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (beyond(array.get(mid), key, after))
+                to = mid;
+            else
+                from = mid + 1;
+        }
+        return chunkStart(lo) + from;
+    }
+
+
+    // true if e comes after key, or is equal to it and not after
+    private boolean beyond(E e, E key, boolean after) {
+        int c = compare(e, key);
+        return after ? c > 0 : c >= 0;
+    }
+
+
+    private int compare(E a, E b) {
+        if (comparator != null)
+            return comparator.compare(a, b);
+        @SuppressWarnings("unchecked")
+        Comparable<? super E> key = (Comparable<? super E>)a;
+        return key.compareTo(b);
+    }
+
+
+    private static <E> ListIterator<E> removeOnly(final ListIterator<E> it) {
+        return new ListIterator<E>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public E next() {
+                return it.next();
+            }
+
+            public boolean hasPrevious() {
+                return it.hasPrevious();
+            }
+
+            public E previous() {
+                return it.previous();
+            }
+
+            public int nextIndex() {
+                return it.nextIndex();
+            }
+
+            public int previousIndex() {
+                return it.previousIndex();
+            }
+
+            public void remove() {
+                it.remove();
+            }
+
+            public void set(E e) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void add(E e) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+
+    /**
+     * View of a range of this list that elements can be read and removed
+     * through, but not set or added
+     */
+    private static class Range<E> extends AbstractList<E> {
+
+        private final List<E> view;
+
+        Range(List<E> view) {
+            this.view = view;
+        }
+
+        public E get(int index) {
+            return view.get(index);
+        }
+
+        public int size() {
+            return view.size();
+        }
+
+        public E remove(int index) {
+            return view.remove(index);
+        }
+
+        public void clear() {
+            view.clear();
+        }
+
+        public ListIterator<E> listIterator(int index) {
+            return removeOnly(view.listIterator(index));
+        }
+
+        public Iterator<E> iterator() {
+            return listIterator(0);
+        }
+
+        public List<E> subList(int fromIndex, int toIndex) {
+            return new Range<E>(view.subList(fromIndex, toIndex));
+        }
+    }
+
+//End
+}
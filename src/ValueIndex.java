@@ -0,0 +1,129 @@
+/**
+ * ValueIndex maps every value of a chunked list to the sublists holding it,
+ * together with the number of times it occurs in each of them, so that
+ * contains, indexOf and remove(Object) only have to look at those sublists
+ * instead of scanning the whole list.
+ *
+ * Sublists are matched by identity. The owning list is responsible for
+ * reporting every value that enters, leaves or moves between its sublists.
+ *
+ * @author Kefei D. Zhou
+ */
+
+import java.io.Serializable;
+import java.util.*;
+
+class ValueIndex implements Serializable {
+
+    /**
+     * A sublist holding a value and how many times it holds it. The entries
+     * of the same value are chained, so a value found in a single sublist,
+     * the common case, costs one entry.
+     */
+    static final class Entry implements Serializable {
+
+        final Object chunk;
+        int count;
+        Entry next;
+
+        Entry(Object chunk, Entry next) {
+            this.chunk = chunk;
+            this.count = 1;
+            this.next = next;
+        }
+
+        public static final long serialVersionUID = 42L;
+    }
+
+    private HashMap<Object, Entry> map = new HashMap<Object, Entry>();
+
+    public static final long serialVersionUID = 42L;
+
+
+    /**
+     * Tests if any sublist holds the value
+     */
+    boolean contains(Object value) {
+        return map.containsKey(value);
+    }
+
+
+    /**
+     * Return the chain of sublists holding the value, null if there is none
+     */
+    Entry chunks(Object value) {
+        return map.get(value);
+    }
+
+
+    /**
+     * Record one more occurrence of the value in the sublist
+     */
+    void add(Object value, Object chunk) {
+        Entry head = map.get(value);
+        for (Entry e = head; e != null; e = e.next) {
+            if (e.chunk == chunk) {
+                e.count++;
+                return;
+            }
+        }
+        map.put(value, new Entry(chunk, head));
+    }
+
+
+    /**
+     * Record one occurrence less of the value in the sublist
+     */
+    void remove(Object value, Object chunk) {
+        Entry prev = null;
+        for (Entry e = map.get(value); e != null; prev = e, e = e.next) {
+            if (e.chunk == chunk) {
+                if (--e.count == 0) {
+                    if (prev != null)
+                        prev.next = e.next;
+                    else if (e.next != null)
+                        map.put(value, e.next);
+                    else
+                        map.remove(value);
+                }
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Record all the values as added to the sublist
+     */
+    void addAll(Collection<?> values, Object chunk) {
+        for (Object value : values)
+            add(value, chunk);
+    }
+
+
+    /**
+     * Record all the values as removed from the sublist
+     */
+    void removeAll(Collection<?> values, Object chunk) {
+        for (Object value : values)
+            remove(value, chunk);
+    }
+
+
+    /**
+     * Record all the values as moved from one sublist to another
+     */
+    void move(Collection<?> values, Object from, Object to) {
+        for (Object value : values) {
+            remove(value, from);
+            add(value, to);
+        }
+    }
+
+
+    void clear() {
+        map.clear();
+    }
+
+//End
+}